@@ -10,6 +10,8 @@ import com.example.securefolder.MainActivity;
 import com.example.securefolder.R;
 import com.example.securefolder.utils.AppPreferences;
 import com.example.securefolder.utils.KeyManager;
+import com.example.securefolder.utils.VaultMigrator;
+import com.example.securefolder.utils.VaultReconciler;
 import com.google.android.material.textfield.TextInputEditText;
 
 public class LoginActivity extends AppCompatActivity {
@@ -49,6 +51,13 @@ public class LoginActivity extends AppCompatActivity {
             appPreferences.resetFailedAttempts();
             Toast.makeText(this, "Vault Unlocked", Toast.LENGTH_SHORT).show();
 
+            // Upgrade any legacy single-IV files to the seekable format in the background
+            VaultMigrator.startAsync(this);
+
+            // Fix rows without files and files without rows, so listings never stat files.
+            // (No index preload: grids and the Trash read keyset pages.)
+            VaultReconciler.startAsync(this);
+
             Intent intent = new Intent(this, MainActivity.class);
             intent.putExtra("IS_LOGGED_IN", true);
             startActivity(intent);
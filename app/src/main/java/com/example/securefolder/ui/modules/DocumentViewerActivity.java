@@ -17,15 +17,13 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import com.example.securefolder.R;
 import com.example.securefolder.utils.CryptoManager;
-import com.example.securefolder.utils.DatabaseHelper;
 import com.example.securefolder.utils.KeyManager;
+import com.example.securefolder.utils.VaultMetadataRepository;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 
 public class DocumentViewerActivity extends AppCompatActivity {
 
-    private DatabaseHelper dbHelper;
+    private VaultMetadataRepository metadata;
     private String currentFilePath;
     private String currentFileName; // UUID
     private File tempFile;
@@ -45,7 +43,7 @@ public class DocumentViewerActivity extends AppCompatActivity {
         getWindow().setFlags(WindowManager.LayoutParams.FLAG_SECURE, WindowManager.LayoutParams.FLAG_SECURE);
         setContentView(R.layout.activity_document_viewer);
 
-        dbHelper = new DatabaseHelper(this);
+        metadata = VaultMetadataRepository.getInstance(this);
         currentFilePath = getIntent().getStringExtra("FILE_PATH");
         currentFileName = getIntent().getStringExtra("FILE_NAME");
 
@@ -62,10 +60,10 @@ public class DocumentViewerActivity extends AppCompatActivity {
         if (currentFilePath == null) { finish(); return; }
 
         // FIX: Use System Name lookup
-        fileId = dbHelper.getFileIdBySystemName(currentFileName);
+        fileId = metadata.getFileId(currentFileName);
 
         // Check if PDF by looking up Real Name
-        String realName = dbHelper.getDisplayName(currentFileName);
+        String realName = metadata.getDisplayName(currentFileName);
         boolean isPdf = realName != null && realName.toLowerCase().endsWith(".pdf");
 
         if (isPdf) {
@@ -88,9 +86,7 @@ public class DocumentViewerActivity extends AppCompatActivity {
                 tempFile = File.createTempFile("VIEW", ".pdf", getCacheDir());
                 tempFile.deleteOnExit();
 
-                FileInputStream fis = new FileInputStream(encryptedFile);
-                FileOutputStream fos = new FileOutputStream(tempFile);
-                boolean success = CryptoManager.decrypt(KeyManager.getMasterKey(), fis, fos);
+                boolean success = CryptoManager.decryptFile(KeyManager.getMasterKey(), encryptedFile, tempFile);
 
                 runOnUiThread(() -> {
                     if (success) {
@@ -138,7 +134,7 @@ public class DocumentViewerActivity extends AppCompatActivity {
                 .setTitle("Move to Trash?")
                 .setPositiveButton("Delete", (dialog, which) -> {
                     if (fileId != -1) {
-                        dbHelper.setFileDeleted(fileId, true);
+                        metadata.setDeleted(fileId, true);
                         Toast.makeText(this, "Moved to Trash", Toast.LENGTH_SHORT).show();
                         finish();
                     }
@@ -154,13 +150,11 @@ public class DocumentViewerActivity extends AppCompatActivity {
                 File downloadDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
                 File destFile = new File(downloadDir, new File(fileName).getName());
 
-                FileInputStream fis = new FileInputStream(currentFilePath);
-                FileOutputStream fos = new FileOutputStream(destFile);
-                boolean success = CryptoManager.decrypt(KeyManager.getMasterKey(), fis, fos);
+                boolean success = CryptoManager.decryptFile(KeyManager.getMasterKey(), new File(currentFilePath), destFile);
 
                 if (success) {
                     new File(currentFilePath).delete();
-                    if (fileId != -1) dbHelper.deleteFileRecordPermanently(fileId);
+                    if (fileId != -1) metadata.deletePermanently(fileId);
 
                     MediaScannerConnection.scanFile(this, new String[]{destFile.getAbsolutePath()}, null, null);
 
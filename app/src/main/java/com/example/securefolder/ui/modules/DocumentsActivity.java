@@ -3,9 +3,7 @@ package com.example.securefolder.ui.modules;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.Intent;
-import android.database.Cursor;
 import android.media.MediaScannerConnection;
-import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
 import android.view.View;
@@ -19,33 +17,32 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.securefolder.R;
 import com.example.securefolder.utils.CryptoManager;
-import com.example.securefolder.utils.DatabaseHelper;
+import com.example.securefolder.utils.ImportEngine;
 import com.example.securefolder.utils.KeyManager;
+import com.example.securefolder.utils.VaultFilePager;
+import com.example.securefolder.utils.VaultMetadataRepository;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 public class DocumentsActivity extends AppCompatActivity implements DocumentsAdapter.OnDocumentActionListener {
 
     private RecyclerView recyclerView;
     private DocumentsAdapter adapter;
-    private List<File> docFiles = new ArrayList<>();
     private LinearLayout loadingLayout, layoutSelection;
     private TextView tvSelectionCount;
     private FloatingActionButton fab;
     private File vaultDir;
-    private DatabaseHelper dbHelper;
+    private VaultMetadataRepository metadata;
+    private VaultFilePager pager;
+    private ImportStatusBar importStatus;
 
     private final ActivityResultLauncher<Intent> pickDocLauncher = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
                 if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
-                    handleDocSelection(result.getData().getData());
+                    ImportEngine.getInstance(this).enqueue("DOCUMENT", ImportEngine.urisFrom(result.getData()));
                 }
             }
     );
@@ -55,7 +52,7 @@ public class DocumentsActivity extends AppCompatActivity implements DocumentsAda
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_photos); // Reuse layout
 
-        dbHelper = new DatabaseHelper(this);
+        metadata = VaultMetadataRepository.getInstance(this);
         loadingLayout = findViewById(R.id.layoutLoading);
         layoutSelection = findViewById(R.id.layoutSelection);
         tvSelectionCount = findViewById(R.id.tvSelectionCount);
@@ -64,8 +61,12 @@ public class DocumentsActivity extends AppCompatActivity implements DocumentsAda
         recyclerView = findViewById(R.id.recyclerView);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
-        adapter = new DocumentsAdapter(docFiles, dbHelper, this);
+        adapter = new DocumentsAdapter(metadata, this);
         recyclerView.setAdapter(adapter);
+        pager = new VaultFilePager(metadata, "DOCUMENT", this::showFiles);
+        pager.attachTo(recyclerView);
+        importStatus = new ImportStatusBar(this, this::loadFilesFromDB, null);
+        importStatus.attach();
 
         fab.setImageResource(android.R.drawable.ic_input_add);
         fab.setOnClickListener(v -> {
@@ -74,6 +75,7 @@ public class DocumentsActivity extends AppCompatActivity implements DocumentsAda
             intent.setType("*/*");
             String[] mimetypes = {"application/pdf", "application/msword", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", "text/plain"};
             intent.putExtra(Intent.EXTRA_MIME_TYPES, mimetypes);
+            intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true); // ImportEngine queues them all
             pickDocLauncher.launch(intent);
         });
 
@@ -86,77 +88,15 @@ public class DocumentsActivity extends AppCompatActivity implements DocumentsAda
         loadFilesFromDB();
     }
 
-    private void handleDocSelection(Uri uri) {
-        if (uri == null) return;
-        loadingLayout.setVisibility(View.VISIBLE);
-
-        new Thread(() -> {
-            try {
-                String originalName = getFileNameFromUri(uri);
-                if (originalName == null) originalName = "Doc_" + System.currentTimeMillis();
-
-                // 1. GENERATE UUID (Invisible Vault)
-                String systemName = UUID.randomUUID().toString();
-
-                File outputFile = new File(vaultDir, systemName);
-                InputStream inputStream = getContentResolver().openInputStream(uri);
-                FileOutputStream outputStream = new FileOutputStream(outputFile);
-
-                boolean success = CryptoManager.encrypt(KeyManager.getMasterKey(), inputStream, outputStream);
-
-                if (success) {
-                    // 2. SAVE TO DB (4 Arguments now)
-                    // We don't have original path for Documents usually (Scoped Storage), so pass "Unknown"
-                    dbHelper.addFile("DOCUMENT", systemName, originalName, "Unknown_Path");
-
-                    runOnUiThread(() -> {
-                        loadingLayout.setVisibility(View.GONE);
-                        loadFilesFromDB();
-                        Toast.makeText(this, "Document Encrypted", Toast.LENGTH_SHORT).show();
-                    });
-                } else {
-                    runOnUiThread(() -> {
-                        loadingLayout.setVisibility(View.GONE);
-                        Toast.makeText(this, "Encryption Failed", Toast.LENGTH_SHORT).show();
-                    });
-                }
-
-            } catch (Exception e) {
-                e.printStackTrace();
-                runOnUiThread(() -> loadingLayout.setVisibility(View.GONE));
-            }
-        }).start();
-    }
-
-    private String getFileNameFromUri(Uri uri) {
-        Cursor cursor = getContentResolver().query(uri, null, null, null, null);
-        if (cursor != null && cursor.moveToFirst()) {
-            int nameIndex = cursor.getColumnIndex(android.provider.OpenableColumns.DISPLAY_NAME);
-            if (nameIndex != -1) {
-                String name = cursor.getString(nameIndex);
-                cursor.close();
-                return name;
-            }
-            cursor.close();
-        }
-        return uri.getLastPathSegment();
+    private void loadFilesFromDB() {
+        pager.refresh(); // First page after one keyset query, the rest while scrolling
     }
 
-    private void loadFilesFromDB() {
-        docFiles.clear();
-        Cursor cursor = dbHelper.getActiveFiles("DOCUMENT");
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                // Use System Name (UUID) to find file on disk
-                String sysName = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SYSTEM_NAME));
-                File file = new File(vaultDir, sysName);
-                if (file.exists()) {
-                    docFiles.add(file);
-                }
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-        adapter.notifyDataSetChanged();
+    private void showFiles(List<VaultMetadataRepository.FileMeta> loaded, boolean complete) {
+        List<File> files = new ArrayList<>(loaded.size());
+        // Pure index read: VaultReconciler keeps rows and vault files in step, no stat per row
+        for (VaultMetadataRepository.FileMeta meta : loaded) files.add(new File(vaultDir, meta.systemName));
+        adapter.submitList(files); // Diffed off the main thread; unchanged cells aren't rebound
     }
 
     @Override
@@ -179,13 +119,20 @@ public class DocumentsActivity extends AppCompatActivity implements DocumentsAda
         new AlertDialog.Builder(this)
                 .setTitle("Delete " + selected.size() + " documents?")
                 .setPositiveButton("Delete", (d, w) -> {
+                    // One transaction for the whole selection, off the UI thread
+                    List<Integer> ids = new ArrayList<>(selected.size());
                     for (File f : selected) {
-                        int id = dbHelper.getFileIdBySystemName(f.getName());
-                        if (id != -1) dbHelper.setFileDeleted(id, true);
+                        int id = metadata.getFileId(f.getName());
+                        if (id != -1) ids.add(id);
                     }
                     adapter.clearSelection();
-                    loadFilesFromDB();
-                    Toast.makeText(this, "Moved to Trash", Toast.LENGTH_SHORT).show();
+                    new Thread(() -> {
+                        metadata.setDeleted(ids, true);
+                        runOnUiThread(() -> {
+                            loadFilesFromDB();
+                            Toast.makeText(this, "Moved to Trash", Toast.LENGTH_SHORT).show();
+                        });
+                    }).start();
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
@@ -199,11 +146,9 @@ public class DocumentsActivity extends AppCompatActivity implements DocumentsAda
             File exportDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOWNLOADS);
             for (File src : selected) {
                 try {
-                    String realName = dbHelper.getDisplayName(src.getName());
+                    String realName = metadata.getDisplayName(src.getName());
                     File dest = new File(exportDir, "Restored_" + realName);
-                    FileInputStream fis = new FileInputStream(src);
-                    FileOutputStream fos = new FileOutputStream(dest);
-                    boolean success = CryptoManager.decrypt(KeyManager.getMasterKey(), fis, fos);
+                    boolean success = CryptoManager.decryptFile(KeyManager.getMasterKey(), src, dest);
                     if (success) {
                         count++;
                         MediaScannerConnection.scanFile(this, new String[]{dest.getAbsolutePath()}, null, null);
@@ -219,6 +164,13 @@ public class DocumentsActivity extends AppCompatActivity implements DocumentsAda
         }).start();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pager != null) pager.release();
+        if (importStatus != null) importStatus.detach();
+    }
+
     @Override
     public void onBackPressed() {
         if (adapter.getSelectedFiles().size() > 0) adapter.clearSelection();
@@ -7,19 +7,19 @@ import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.securefolder.R;
-import com.example.securefolder.utils.DatabaseHelper;
+import com.example.securefolder.utils.VaultMetadataRepository;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-public class DocumentsAdapter extends RecyclerView.Adapter<DocumentsAdapter.ViewHolder> {
+public class DocumentsAdapter extends ListAdapter<File, DocumentsAdapter.ViewHolder> {
 
-    private final List<File> files;
-    private final DatabaseHelper dbHelper;
+    private final VaultMetadataRepository metadata;
     private final OnDocumentActionListener listener;
 
     private boolean isSelectionMode = false;
@@ -30,10 +30,11 @@ public class DocumentsAdapter extends RecyclerView.Adapter<DocumentsAdapter.View
         void onSelectionChanged(boolean active, int count);
     }
 
-    public DocumentsAdapter(List<File> files, DatabaseHelper dbHelper, OnDocumentActionListener listener) {
-        this.files = files;
-        this.dbHelper = dbHelper;
+    public DocumentsAdapter(VaultMetadataRepository metadata, OnDocumentActionListener listener) {
+        super(new VaultFileDiff()); // Diffs run on a background thread
+        this.metadata = metadata;
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -45,31 +46,27 @@ public class DocumentsAdapter extends RecyclerView.Adapter<DocumentsAdapter.View
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        File file = files.get(position);
+        File file = getItem(position);
 
         // Resolve Real Name from DB using the UUID filename
-        String displayName = dbHelper.getDisplayName(file.getName());
+        String displayName = metadata.getDisplayName(file.getName());
         if (displayName == null) displayName = "Unknown Document";
 
         holder.tvName.setText(displayName);
         holder.icon.setImageResource(R.drawable.ic_document);
 
         // Selection Visuals
-        if (selectedFiles.contains(file)) {
-            holder.overlay.setVisibility(View.VISIBLE);
-        } else {
-            holder.overlay.setVisibility(View.GONE);
-        }
+        bindSelection(holder, file);
 
         holder.itemView.setOnClickListener(v -> {
-            if (isSelectionMode) toggleSelection(file);
+            if (isSelectionMode) toggleSelection(file, holder.getAdapterPosition());
             else listener.onDocumentClick(file);
         });
 
         holder.itemView.setOnLongClickListener(v -> {
             if (!isSelectionMode) {
                 isSelectionMode = true;
-                toggleSelection(file);
+                toggleSelection(file, holder.getAdapterPosition());
                 listener.onSelectionChanged(true, selectedFiles.size());
                 return true;
             }
@@ -77,20 +74,43 @@ public class DocumentsAdapter extends RecyclerView.Adapter<DocumentsAdapter.View
         });
     }
 
-    private void toggleSelection(File file) {
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(VaultFileDiff.PAYLOAD_SELECTION)) {
+            bindSelection(holder, getItem(position)); // Just the overlay; name and icon stay
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
+    private void bindSelection(ViewHolder holder, File file) {
+        holder.overlay.setVisibility(selectedFiles.contains(file) ? View.VISIBLE : View.GONE);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return metadata.getFileId(getItem(position).getName()); // DB primary key
+    }
+
+    private void toggleSelection(File file, int position) {
         if (selectedFiles.contains(file)) selectedFiles.remove(file);
         else selectedFiles.add(file);
 
         if (selectedFiles.isEmpty()) isSelectionMode = false;
 
-        notifyDataSetChanged();
+        if (position != RecyclerView.NO_POSITION) notifyItemChanged(position, VaultFileDiff.PAYLOAD_SELECTION);
         listener.onSelectionChanged(isSelectionMode, selectedFiles.size());
     }
 
     public void clearSelection() {
         isSelectionMode = false;
+        Set<File> cleared = new HashSet<>(selectedFiles);
         selectedFiles.clear();
-        notifyDataSetChanged();
+        // Rebind only the cells that were selected
+        List<File> current = getCurrentList();
+        for (int i = 0; i < current.size(); i++) {
+            if (cleared.contains(current.get(i))) notifyItemChanged(i, VaultFileDiff.PAYLOAD_SELECTION);
+        }
         listener.onSelectionChanged(false, 0);
     }
 
@@ -98,11 +118,6 @@ public class DocumentsAdapter extends RecyclerView.Adapter<DocumentsAdapter.View
         return new ArrayList<>(selectedFiles);
     }
 
-    @Override
-    public int getItemCount() {
-        return files.size();
-    }
-
     public static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvName;
         ImageView icon;
@@ -0,0 +1,91 @@
+package com.example.securefolder.ui.modules;
+
+import android.app.PendingIntent;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.MediaStore;
+import android.text.format.Formatter;
+import android.view.View;
+import android.widget.LinearLayout;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.IntentSenderRequest;
+import androidx.appcompat.app.AppCompatActivity;
+import com.example.securefolder.R;
+import com.example.securefolder.utils.ImportEngine;
+import java.util.List;
+
+/**
+ * ImportEngine progress strip of the vault grids (layoutImport in activity_photos.xml).
+ * Doesn't block the grid: imported files appear while the rest are still queued.
+ */
+class ImportStatusBar implements ImportEngine.Listener {
+
+    private final AppCompatActivity activity;
+    private final ImportEngine engine;
+    private final Runnable onFilesAdded;
+    private final ActivityResultLauncher<IntentSenderRequest> deleteRequestLauncher; // Null: no originals to delete
+    private final LinearLayout layout;
+    private final TextView text;
+    private final ProgressBar bar;
+    private int seenImported = -1;
+    private boolean showing = false;
+
+    ImportStatusBar(AppCompatActivity activity, Runnable onFilesAdded,
+                    ActivityResultLauncher<IntentSenderRequest> deleteRequestLauncher) {
+        this.activity = activity;
+        this.engine = ImportEngine.getInstance(activity);
+        this.onFilesAdded = onFilesAdded;
+        this.deleteRequestLauncher = deleteRequestLauncher;
+        this.layout = activity.findViewById(R.id.layoutImport);
+        this.text = activity.findViewById(R.id.tvImportProgress);
+        this.bar = activity.findViewById(R.id.progressImport);
+        activity.findViewById(R.id.btnCancelImport).setOnClickListener(v -> engine.cancelAll());
+    }
+
+    /** Call from onCreate / onDestroy. */
+    void attach() {
+        engine.addListener(this);
+    }
+
+    void detach() {
+        engine.removeListener(this);
+    }
+
+    @Override
+    public void onProgress(ImportEngine.Progress progress) {
+        // Refresh the grid as files land, at the engine's throttled rate
+        if (seenImported != -1 && progress.imported != seenImported) onFilesAdded.run();
+        seenImported = progress.imported;
+
+        if (progress.isRunning()) {
+            layout.setVisibility(View.VISIBLE);
+            bar.setMax(progress.total);
+            bar.setProgress(progress.getFinished());
+            text.setText("Importing " + progress.getFinished() + " / " + progress.total + "  ("
+                    + Formatter.formatShortFileSize(activity, progress.getBytesPerSecond()) + "/s)");
+            showing = true;
+            return;
+        }
+
+        layout.setVisibility(View.GONE);
+        if (!showing) return;
+        showing = false;
+        String message = "Encrypted " + progress.imported + " of " + progress.total;
+        if (progress.failed > 0) message += ", " + progress.failed + " failed";
+        if (progress.cancelled > 0) message += ", " + progress.cancelled + " cancelled";
+        Toast.makeText(activity, message, Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public void onDeleteConsentNeeded(List<Uri> uris) {
+        // One system dialog for every original the app couldn't delete itself
+        if (deleteRequestLauncher == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.R) return;
+        try {
+            PendingIntent pi = MediaStore.createDeleteRequest(activity.getContentResolver(), uris);
+            deleteRequestLauncher.launch(new IntentSenderRequest.Builder(pi.getIntentSender()).build());
+        } catch (Exception e) { e.printStackTrace(); }
+    }
+}
@@ -56,7 +56,7 @@ public class NoteEditorActivity extends AppCompatActivity {
                 return;
             }
 
-            DatabaseHelper db = new DatabaseHelper(this);
+            DatabaseHelper db = DatabaseHelper.getInstance(this);
             if (existingId == -1) {
                 db.addNote(encTitle, encContent);
                 Toast.makeText(this, "Note Encrypted & Saved", Toast.LENGTH_SHORT).show();
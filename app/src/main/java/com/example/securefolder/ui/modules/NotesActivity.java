@@ -27,7 +27,6 @@ import java.util.List;
 public class NotesActivity extends AppCompatActivity implements NotesAdapter.OnNoteActionListener {
 
     private DatabaseHelper dbHelper;
-    private List<NoteItem> noteList;
     private RecyclerView rv;
     private NotesAdapter adapter;
     private LinearLayout layoutSelection;
@@ -52,8 +51,7 @@ public class NotesActivity extends AppCompatActivity implements NotesAdapter.OnN
 
         if (KeyManager.getMasterKey() == null) { finish(); return; }
 
-        dbHelper = new DatabaseHelper(this);
-        noteList = new ArrayList<>();
+        dbHelper = DatabaseHelper.getInstance(this);
 
         rv = findViewById(R.id.recyclerView);
         layoutSelection = findViewById(R.id.layoutSelection);
@@ -62,7 +60,7 @@ public class NotesActivity extends AppCompatActivity implements NotesAdapter.OnN
 
         // Staggered Grid for Notes looks better
         rv.setLayoutManager(new StaggeredGridLayoutManager(2, StaggeredGridLayoutManager.VERTICAL));
-        adapter = new NotesAdapter(noteList, this);
+        adapter = new NotesAdapter(this);
         rv.setAdapter(adapter);
 
         // UI Setup
@@ -80,7 +78,7 @@ public class NotesActivity extends AppCompatActivity implements NotesAdapter.OnN
     }
 
     private void loadNotes() {
-        noteList.clear();
+        List<NoteItem> notes = new ArrayList<>();
         Cursor cursor = dbHelper.getAllNotes(false);
         if (cursor != null && cursor.moveToFirst()) {
             do {
@@ -95,11 +93,11 @@ public class NotesActivity extends AppCompatActivity implements NotesAdapter.OnN
                 // Simple truncate for preview
                 if (content != null && content.length() > 100) content = content.substring(0, 100) + "...";
 
-                noteList.add(new NoteItem(id, title, content, time));
+                notes.add(new NoteItem(id, title, content, time));
             } while (cursor.moveToNext());
             cursor.close();
         }
-        adapter.notifyDataSetChanged();
+        adapter.submitList(notes); // Diffed off the main thread; unchanged rows aren't rebound
     }
 
     @Override
@@ -6,6 +6,8 @@ import android.view.ViewGroup;
 import android.widget.FrameLayout;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.securefolder.R;
 import java.text.SimpleDateFormat;
@@ -14,11 +16,29 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
 import java.util.Set;
 
-public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.ViewHolder> {
+public class NotesAdapter extends ListAdapter<NotesActivity.NoteItem, NotesAdapter.ViewHolder> {
+
+    // Rows are keyed by their DB primary key; DiffUtil runs on a background thread
+    private static final DiffUtil.ItemCallback<NotesActivity.NoteItem> DIFF = new DiffUtil.ItemCallback<NotesActivity.NoteItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull NotesActivity.NoteItem oldItem, @NonNull NotesActivity.NoteItem newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull NotesActivity.NoteItem oldItem, @NonNull NotesActivity.NoteItem newItem) {
+            return oldItem.timestamp == newItem.timestamp
+                    && Objects.equals(oldItem.title, newItem.title)
+                    && Objects.equals(oldItem.content, newItem.content);
+        }
+    };
+
+    /** notifyItemChanged payload: only the selection overlay needs rebinding. */
+    private static final Object PAYLOAD_SELECTION = new Object();
 
-    private final List<NotesActivity.NoteItem> notes;
     private final OnNoteActionListener listener;
     private boolean isSelectionMode = false;
     private final Set<Integer> selectedIds = new HashSet<>();
@@ -29,9 +49,10 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.ViewHolder>
         void onSelectionChanged(boolean active, int count);
     }
 
-    public NotesAdapter(List<NotesActivity.NoteItem> notes, OnNoteActionListener listener) {
-        this.notes = notes;
+    public NotesAdapter(OnNoteActionListener listener) {
+        super(DIFF);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -43,47 +64,66 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.ViewHolder>
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        NotesActivity.NoteItem note = notes.get(position);
+        NotesActivity.NoteItem note = getItem(position);
         holder.tvTitle.setText(note.title);
         holder.tvContent.setText(note.content);
         holder.tvDate.setText(sdf.format(new Date(note.timestamp)));
 
         // Selection
-        if (selectedIds.contains(note.id)) {
-            holder.overlay.setVisibility(View.VISIBLE);
-        } else {
-            holder.overlay.setVisibility(View.GONE);
-        }
+        bindSelection(holder, note);
 
         holder.itemView.setOnClickListener(v -> {
-            if (isSelectionMode) toggleSelection(note.id);
+            if (isSelectionMode) toggleSelection(note.id, holder.getAdapterPosition());
             else listener.onNoteClick(note);
         });
 
         holder.itemView.setOnLongClickListener(v -> {
             if (!isSelectionMode) {
                 isSelectionMode = true;
-                toggleSelection(note.id);
+                toggleSelection(note.id, holder.getAdapterPosition());
                 return true;
             }
             return false;
         });
     }
 
-    private void toggleSelection(int id) {
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_SELECTION)) {
+            bindSelection(holder, getItem(position)); // Just the overlay; title and preview stay
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
+    private void bindSelection(ViewHolder holder, NotesActivity.NoteItem note) {
+        holder.overlay.setVisibility(selectedIds.contains(note.id) ? View.VISIBLE : View.GONE);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+
+    private void toggleSelection(int id, int position) {
         if (selectedIds.contains(id)) selectedIds.remove(id);
         else selectedIds.add(id);
 
         if (selectedIds.isEmpty()) isSelectionMode = false;
 
-        notifyDataSetChanged();
+        if (position != RecyclerView.NO_POSITION) notifyItemChanged(position, PAYLOAD_SELECTION);
         listener.onSelectionChanged(isSelectionMode, selectedIds.size());
     }
 
     public void clearSelection() {
         isSelectionMode = false;
+        Set<Integer> cleared = new HashSet<>(selectedIds);
         selectedIds.clear();
-        notifyDataSetChanged();
+        // Rebind only the cells that were selected
+        List<NotesActivity.NoteItem> current = getCurrentList();
+        for (int i = 0; i < current.size(); i++) {
+            if (cleared.contains(current.get(i).id)) notifyItemChanged(i, PAYLOAD_SELECTION);
+        }
         listener.onSelectionChanged(false, 0);
     }
 
@@ -91,11 +131,6 @@ public class NotesAdapter extends RecyclerView.Adapter<NotesAdapter.ViewHolder>
         return new ArrayList<>(selectedIds);
     }
 
-    @Override
-    public int getItemCount() {
-        return notes.size();
-    }
-
     static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvTitle, tvContent, tvDate;
         FrameLayout overlay;
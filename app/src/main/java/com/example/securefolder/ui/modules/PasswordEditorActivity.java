@@ -61,7 +61,7 @@ public class PasswordEditorActivity extends AppCompatActivity {
             String encUser = CryptoManager.encryptString(user);
             String encPass = CryptoManager.encryptString(pass);
 
-            DatabaseHelper db = new DatabaseHelper(this);
+            DatabaseHelper db = DatabaseHelper.getInstance(this);
             if (existingId == -1) {
                 db.addPassword(encApp, encUser, encPass);
                 Toast.makeText(this, "Saved", Toast.LENGTH_SHORT).show();
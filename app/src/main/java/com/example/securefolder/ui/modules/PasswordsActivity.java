@@ -25,7 +25,6 @@ import java.util.List;
 public class PasswordsActivity extends AppCompatActivity implements PasswordsAdapter.OnPassActionListener {
 
     private DatabaseHelper dbHelper;
-    private List<PassItem> passList;
     private RecyclerView rv;
     private PasswordsAdapter adapter;
     private LinearLayout layoutSelection;
@@ -54,10 +53,9 @@ public class PasswordsActivity extends AppCompatActivity implements PasswordsAda
         fab = findViewById(R.id.fabAdd);
 
         rv.setLayoutManager(new LinearLayoutManager(this));
-        dbHelper = new DatabaseHelper(this);
-        passList = new ArrayList<>();
+        dbHelper = DatabaseHelper.getInstance(this);
 
-        adapter = new PasswordsAdapter(passList, this);
+        adapter = new PasswordsAdapter(this);
         rv.setAdapter(adapter);
 
         fab.setImageResource(android.R.drawable.ic_input_add);
@@ -78,7 +76,7 @@ public class PasswordsActivity extends AppCompatActivity implements PasswordsAda
     }
 
     private void loadPasswords() {
-        passList.clear();
+        List<PassItem> items = new ArrayList<>();
         Cursor cursor = dbHelper.getAllPasswords(false);
         if (cursor != null && cursor.moveToFirst()) {
             do {
@@ -92,11 +90,11 @@ public class PasswordsActivity extends AppCompatActivity implements PasswordsAda
                 String user = CryptoManager.decryptString(encUser);
                 String pass = CryptoManager.decryptString(encPass);
 
-                passList.add(new PassItem(id, app, user, pass, time));
+                items.add(new PassItem(id, app, user, pass, time));
             } while (cursor.moveToNext());
             cursor.close();
         }
-        adapter.notifyDataSetChanged();
+        adapter.submitList(items); // Diffed off the main thread; unchanged rows aren't rebound
     }
 
     @Override
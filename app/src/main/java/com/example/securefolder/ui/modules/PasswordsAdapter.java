@@ -7,16 +7,37 @@ import android.widget.FrameLayout;
 import android.widget.ImageButton;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.securefolder.R;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
-public class PasswordsAdapter extends RecyclerView.Adapter<PasswordsAdapter.ViewHolder> {
+public class PasswordsAdapter extends ListAdapter<PasswordsActivity.PassItem, PasswordsAdapter.ViewHolder> {
+
+    // Rows are keyed by their DB primary key; DiffUtil runs on a background thread
+    private static final DiffUtil.ItemCallback<PasswordsActivity.PassItem> DIFF = new DiffUtil.ItemCallback<PasswordsActivity.PassItem>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull PasswordsActivity.PassItem oldItem, @NonNull PasswordsActivity.PassItem newItem) {
+            return oldItem.id == newItem.id;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull PasswordsActivity.PassItem oldItem, @NonNull PasswordsActivity.PassItem newItem) {
+            return oldItem.timestamp == newItem.timestamp
+                    && Objects.equals(oldItem.appName, newItem.appName)
+                    && Objects.equals(oldItem.username, newItem.username)
+                    && Objects.equals(oldItem.password, newItem.password);
+        }
+    };
+
+    /** notifyItemChanged payload: only the selection overlay needs rebinding. */
+    private static final Object PAYLOAD_SELECTION = new Object();
 
-    private final List<PasswordsActivity.PassItem> data;
     private final OnPassActionListener listener;
     private boolean isSelectionMode = false;
     private final Set<Integer> selectedIds = new HashSet<>();
@@ -28,9 +49,10 @@ public class PasswordsAdapter extends RecyclerView.Adapter<PasswordsAdapter.View
         void onSelectionChanged(boolean active, int count);
     }
 
-    public PasswordsAdapter(List<PasswordsActivity.PassItem> data, OnPassActionListener listener) {
-        this.data = data;
+    public PasswordsAdapter(OnPassActionListener listener) {
+        super(DIFF);
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -42,7 +64,7 @@ public class PasswordsAdapter extends RecyclerView.Adapter<PasswordsAdapter.View
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        PasswordsActivity.PassItem item = data.get(position);
+        PasswordsActivity.PassItem item = getItem(position);
         holder.tvAppName.setText(item.appName);
         holder.tvUsername.setText(item.username);
 
@@ -52,22 +74,18 @@ public class PasswordsAdapter extends RecyclerView.Adapter<PasswordsAdapter.View
         }
 
         // Selection Visuals
-        if (selectedIds.contains(item.id)) {
-            holder.overlay.setVisibility(View.VISIBLE);
-        } else {
-            holder.overlay.setVisibility(View.GONE);
-        }
+        bindSelection(holder, item);
 
         // Click Logic
         holder.itemView.setOnClickListener(v -> {
-            if (isSelectionMode) toggleSelection(item.id);
+            if (isSelectionMode) toggleSelection(item.id, holder.getAdapterPosition());
             else listener.onPassClick(item);
         });
 
         holder.itemView.setOnLongClickListener(v -> {
             if (!isSelectionMode) {
                 isSelectionMode = true;
-                toggleSelection(item.id);
+                toggleSelection(item.id, holder.getAdapterPosition());
                 return true;
             }
             return false;
@@ -78,20 +96,43 @@ public class PasswordsAdapter extends RecyclerView.Adapter<PasswordsAdapter.View
         holder.btnCopyPass.setOnClickListener(v -> listener.onCopyPass(item.password));
     }
 
-    private void toggleSelection(int id) {
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_SELECTION)) {
+            bindSelection(holder, getItem(position)); // Just the overlay; text and buttons stay
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
+    private void bindSelection(ViewHolder holder, PasswordsActivity.PassItem item) {
+        holder.overlay.setVisibility(selectedIds.contains(item.id) ? View.VISIBLE : View.GONE);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).id;
+    }
+
+    private void toggleSelection(int id, int position) {
         if (selectedIds.contains(id)) selectedIds.remove(id);
         else selectedIds.add(id);
 
         if (selectedIds.isEmpty()) isSelectionMode = false;
 
-        notifyDataSetChanged();
+        if (position != RecyclerView.NO_POSITION) notifyItemChanged(position, PAYLOAD_SELECTION);
         listener.onSelectionChanged(isSelectionMode, selectedIds.size());
     }
 
     public void clearSelection() {
         isSelectionMode = false;
+        Set<Integer> cleared = new HashSet<>(selectedIds);
         selectedIds.clear();
-        notifyDataSetChanged();
+        // Rebind only the cells that were selected
+        List<PasswordsActivity.PassItem> current = getCurrentList();
+        for (int i = 0; i < current.size(); i++) {
+            if (cleared.contains(current.get(i).id)) notifyItemChanged(i, PAYLOAD_SELECTION);
+        }
         listener.onSelectionChanged(false, 0);
     }
 
@@ -99,11 +140,6 @@ public class PasswordsAdapter extends RecyclerView.Adapter<PasswordsAdapter.View
         return new ArrayList<>(selectedIds);
     }
 
-    @Override
-    public int getItemCount() {
-        return data.size();
-    }
-
     static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvAppName, tvUsername, tvLetter;
         ImageButton btnCopyUser, btnCopyPass;
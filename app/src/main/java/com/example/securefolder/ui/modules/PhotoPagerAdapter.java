@@ -0,0 +1,111 @@
+package com.example.securefolder.ui.modules;
+
+import android.graphics.Bitmap;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ProgressBar;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+import com.example.securefolder.R;
+import com.example.securefolder.utils.PhotoPrefetcher;
+import com.example.securefolder.utils.ThumbnailStore;
+import java.io.File;
+import java.util.List;
+
+/**
+ * Pages of the photo viewer. Bitmaps come from the PhotoPrefetcher (usually already
+ * decoded by the time a page is bound); the thumbnail fills in until then.
+ */
+public class PhotoPagerAdapter extends RecyclerView.Adapter<PhotoPagerAdapter.ViewHolder> {
+
+    private final List<File> files;
+    private final PhotoPrefetcher prefetcher;
+    private final ThumbnailStore thumbnails;
+    private final OnPageListener listener;
+
+    public interface OnPageListener {
+        void onPageFailed(String systemName);
+    }
+
+    public PhotoPagerAdapter(List<File> files, PhotoPrefetcher prefetcher, ThumbnailStore thumbnails,
+                             OnPageListener listener) {
+        this.files = files;
+        this.prefetcher = prefetcher;
+        this.thumbnails = thumbnails;
+        this.listener = listener;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_photo_page, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        File file = files.get(position);
+        String systemName = file.getName();
+
+        // Tag lets the activity find the page (tiles) and drops results for recycled holders
+        holder.itemView.setTag(systemName);
+        clear(holder);
+        holder.progressBar.setVisibility(View.VISIBLE);
+
+        prefetcher.get(position, (name, decoded) -> {
+            if (!name.equals(holder.itemView.getTag())) return;
+            if (decoded == null) {
+                listener.onPageFailed(name); // Not the position: the viewer inserts newer pages in front
+                return;
+            }
+            holder.progressBar.setVisibility(View.GONE);
+            holder.image.setImage(decoded.bitmap, decoded.fullWidth, decoded.fullHeight);
+            thumbnails.release(holder.thumbnail); // Replaced
+            holder.thumbnail = null;
+        });
+
+        if (holder.progressBar.getVisibility() == View.VISIBLE) {
+            thumbnails.loadAsync("PHOTO", systemName, file, (name, thumbnail) -> {
+                // Only while the full bitmap hasn't landed yet
+                if (!name.equals(holder.itemView.getTag()) || holder.progressBar.getVisibility() != View.VISIBLE) {
+                    thumbnails.release(thumbnail);
+                    return;
+                }
+                holder.image.setImage(thumbnail, thumbnail.getWidth(), thumbnail.getHeight());
+                thumbnails.release(holder.thumbnail);
+                holder.thumbnail = thumbnail;
+            });
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        holder.itemView.setTag(null);
+        clear(holder);
+    }
+
+    /** Empties the page (frees its tile decoder, if any) and hands back its thumbnail. */
+    private void clear(ViewHolder holder) {
+        holder.image.release();
+        thumbnails.release(holder.thumbnail);
+        holder.thumbnail = null;
+    }
+
+    @Override
+    public int getItemCount() {
+        return files.size();
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        TiledImageView image;
+        Bitmap thumbnail; // Held from ThumbnailStore while shown as the placeholder
+        ProgressBar progressBar;
+
+        public ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            image = itemView.findViewById(R.id.ivFullPhoto);
+            progressBar = itemView.findViewById(R.id.progressBar);
+        }
+    }
+}
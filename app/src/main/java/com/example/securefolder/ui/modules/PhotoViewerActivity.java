@@ -1,34 +1,49 @@
 package com.example.securefolder.ui.modules;
 
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.media.MediaScannerConnection;
 import android.os.Bundle;
 import android.os.Environment;
+import android.util.DisplayMetrics;
 import android.view.View;
 import android.view.WindowManager;
 import android.widget.Button;
-import android.widget.ImageView;
-import android.widget.ProgressBar;
 import android.widget.Toast;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.viewpager2.widget.ViewPager2;
 import com.example.securefolder.R;
 import com.example.securefolder.utils.CryptoManager;
-import com.example.securefolder.utils.DatabaseHelper;
 import com.example.securefolder.utils.KeyManager;
-import java.io.ByteArrayOutputStream;
+import com.example.securefolder.utils.PhotoPrefetcher;
+import com.example.securefolder.utils.RegionTileDecoder;
+import com.example.securefolder.utils.ThumbnailStore;
+import com.example.securefolder.utils.VaultFileWindow;
+import com.example.securefolder.utils.VaultMetadataRepository;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class PhotoViewerActivity extends AppCompatActivity {
+public class PhotoViewerActivity extends AppCompatActivity
+        implements PhotoPagerAdapter.OnPageListener, VaultFileWindow.Listener {
 
-    private DatabaseHelper dbHelper;
+    private VaultMetadataRepository metadata;
     private String currentFilePath;
     private String currentFileName; // This is now the UUID (System Name)
     private int fileId = -1;
 
+    // Swipeable list, in PhotosActivity order; grows at both ends as the window loads
+    private final List<File> files = new ArrayList<>();
+    private File vaultDir;
+    private ViewPager2 viewPager;
+    private PhotoPagerAdapter adapter;
+    private PhotoPrefetcher prefetcher;
+    private VaultFileWindow window; // Null when opened without a keyset position
+    private final ExecutorService tileExecutor = Executors.newSingleThreadExecutor();
+    private int tileGeneration = 0; // Bumped per page so late tile decoders are dropped
+    private String tiledPage;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -36,9 +51,8 @@ public class PhotoViewerActivity extends AppCompatActivity {
         getWindow().setFlags(WindowManager.LayoutParams.FLAG_SECURE, WindowManager.LayoutParams.FLAG_SECURE);
         setContentView(R.layout.activity_photo_viewer);
 
-        dbHelper = new DatabaseHelper(this);
-        ImageView imageView = findViewById(R.id.ivFullPhoto);
-        ProgressBar progressBar = findViewById(R.id.progressBar);
+        metadata = VaultMetadataRepository.getInstance(this);
+        viewPager = findViewById(R.id.viewPager);
         Button btnUnlock = findViewById(R.id.btnUnlock);
         Button btnTrash = findViewById(R.id.btnTrash);
 
@@ -47,48 +61,114 @@ public class PhotoViewerActivity extends AppCompatActivity {
 
         if (currentFilePath == null) { finish(); return; }
 
-        // FIX: Use new method for UUID lookup
-        fileId = dbHelper.getFileIdBySystemName(currentFileName);
-
-        // Decrypt and Show
-        new Thread(() -> {
-            try {
-                File file = new File(currentFilePath);
-                FileInputStream fis = new FileInputStream(file);
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-                boolean success = CryptoManager.decrypt(KeyManager.getMasterKey(), fis, baos);
-
-                if (success) {
-                    byte[] imageData = baos.toByteArray();
-                    Bitmap bitmap = BitmapFactory.decodeByteArray(imageData, 0, imageData.length);
-                    runOnUiThread(() -> {
-                        progressBar.setVisibility(View.GONE);
-                        imageView.setImageBitmap(bitmap);
-                    });
-                } else {
-                    runOnUiThread(() -> {
-                        Toast.makeText(this, "Decryption Failed", Toast.LENGTH_SHORT).show();
-                        finish();
-                    });
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-                runOnUiThread(this::finish);
+        // FILE_ID / FILE_TIMESTAMP: the photo's keyset position; neighbours are paged in from there
+        vaultDir = new File(currentFilePath).getParentFile();
+        files.add(new File(vaultDir, currentFileName));
+        int startId = getIntent().getIntExtra("FILE_ID", -1);
+        if (startId != -1) {
+            long startTimestamp = getIntent().getLongExtra("FILE_TIMESTAMP", 0);
+            window = new VaultFileWindow(metadata, "PHOTO", startTimestamp, startId, this);
+        }
+
+        DisplayMetrics screen = getResources().getDisplayMetrics();
+        prefetcher = new PhotoPrefetcher(files, screen.widthPixels, screen.heightPixels);
+        adapter = new PhotoPagerAdapter(files, prefetcher, ThumbnailStore.getInstance(this), this);
+        viewPager.setAdapter(adapter);
+        viewPager.setOffscreenPageLimit(PhotoPrefetcher.RADIUS);
+        viewPager.registerOnPageChangeCallback(new ViewPager2.OnPageChangeCallback() {
+            @Override
+            public void onPageSelected(int position) {
+                selectPage(position);
             }
-        }).start();
+        });
+        selectPage(0);
 
         btnUnlock.setOnClickListener(v -> restorePhoto());
         btnTrash.setOnClickListener(v -> moveToTrash());
     }
 
+    private void selectPage(int position) {
+        File file = files.get(position);
+        if (file.getName().equals(tiledPage)) return;
+
+        currentFilePath = file.getAbsolutePath();
+        currentFileName = file.getName();
+        fileId = metadata.getFileId(currentFileName);
+        if (window != null) window.ensureAround(position, files.size());
+        prefetcher.prefetchAround(position);
+
+        // Full-detail tiles only for the page on screen
+        TiledImageView previous = findPage(tiledPage);
+        if (previous != null) previous.setTileDecoder(null);
+        tiledPage = currentFileName;
+        int generation = ++tileGeneration;
+        prefetcher.get(position, (name, decoded) -> {
+            if (decoded == null || decoded.sampleSize == 1 || generation != tileGeneration) return;
+            tileExecutor.execute(() -> openTiles(file, generation));
+        });
+    }
+
+    /** Background: region decoder for zooming in, decoded in memory only. */
+    private void openTiles(File file, int generation) {
+        try {
+            RegionTileDecoder tiles = RegionTileDecoder.open(file, KeyManager.getMasterKey());
+            runOnUiThread(() -> {
+                TiledImageView page = findPage(file.getName());
+                if (isDestroyed() || generation != tileGeneration || page == null) tiles.release();
+                else page.setTileDecoder(tiles);
+            });
+        } catch (Exception e) {
+            e.printStackTrace(); // Format without region support: zoom stays on the sampled bitmap
+        }
+    }
+
+    private TiledImageView findPage(String systemName) {
+        if (systemName == null) return null;
+        View page = viewPager.findViewWithTag(systemName);
+        return page != null ? page.findViewById(R.id.ivFullPhoto) : null;
+    }
+
+    @Override
+    public void onNewerLoaded(List<VaultMetadataRepository.FileMeta> rows) {
+        List<File> newer = new ArrayList<>(rows.size());
+        for (VaultMetadataRepository.FileMeta meta : rows) newer.add(new File(vaultDir, meta.systemName));
+        files.addAll(0, newer);
+        // ViewPager2 keeps the page on screen and moves its current item along
+        adapter.notifyItemRangeInserted(0, newer.size());
+    }
+
+    @Override
+    public void onOlderLoaded(List<VaultMetadataRepository.FileMeta> rows) {
+        int start = files.size();
+        for (VaultMetadataRepository.FileMeta meta : rows) files.add(new File(vaultDir, meta.systemName));
+        adapter.notifyItemRangeInserted(start, rows.size());
+        prefetcher.prefetchAround(viewPager.getCurrentItem()); // The next page may just have arrived
+    }
+
+    @Override
+    public void onPageFailed(String systemName) {
+        if (!systemName.equals(currentFileName)) return;
+        Toast.makeText(this, "Decryption Failed", Toast.LENGTH_SHORT).show();
+        if (files.size() == 1) finish();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        tileExecutor.shutdownNow();
+        if (window != null) window.release();
+        if (prefetcher != null) prefetcher.release();
+        TiledImageView page = findPage(tiledPage);
+        if (page != null) page.release();
+    }
+
     private void moveToTrash() {
         new AlertDialog.Builder(this)
                 .setTitle("Move to Trash?")
                 .setMessage("This file will be moved to Trash. You can restore it later.")
                 .setPositiveButton("Delete", (dialog, which) -> {
                     if (fileId != -1) {
-                        dbHelper.setFileDeleted(fileId, true);
+                        metadata.setDeleted(fileId, true);
                         Toast.makeText(this, "Moved to Trash", Toast.LENGTH_SHORT).show();
                         finish(); // Close viewer
                     }
@@ -101,7 +181,7 @@ public class PhotoViewerActivity extends AppCompatActivity {
         new Thread(() -> {
             try {
                 // 1. Get Real Name from DB (Since file on disk is just a UUID)
-                String realName = dbHelper.getDisplayName(currentFileName);
+                String realName = metadata.getDisplayName(currentFileName);
                 if (realName == null || realName.equals("Unknown")) {
                     realName = "Restored_Img_" + System.currentTimeMillis() + ".jpg";
                 } else {
@@ -112,9 +192,7 @@ public class PhotoViewerActivity extends AppCompatActivity {
                 File destFile = new File(picturesDir, realName);
 
                 // 2. Decrypt to Destination
-                FileInputStream fis = new FileInputStream(currentFilePath);
-                FileOutputStream fos = new FileOutputStream(destFile);
-                boolean success = CryptoManager.decrypt(KeyManager.getMasterKey(), fis, fos);
+                boolean success = CryptoManager.decryptFile(KeyManager.getMasterKey(), new File(currentFilePath), destFile);
 
                 if (success) {
                     // 3. Delete from Vault (Disk)
@@ -122,7 +200,7 @@ public class PhotoViewerActivity extends AppCompatActivity {
 
                     // 4. Delete from DB (Permanently removed)
                     if (fileId != -1) {
-                        dbHelper.deleteFileRecordPermanently(fileId);
+                        metadata.deletePermanently(fileId);
                     }
 
                     // 5. Refresh Gallery
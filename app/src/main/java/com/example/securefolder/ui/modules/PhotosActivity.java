@@ -2,12 +2,8 @@ package com.example.securefolder.ui.modules;
 
 import android.app.Activity;
 import android.app.AlertDialog;
-import android.app.PendingIntent;
 import android.content.Intent;
-import android.database.Cursor;
 import android.media.MediaScannerConnection;
-import android.net.Uri;
-import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
 import android.provider.MediaStore;
@@ -24,35 +20,36 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.securefolder.R;
 import com.example.securefolder.utils.CryptoManager;
-import com.example.securefolder.utils.DatabaseHelper;
+import com.example.securefolder.utils.ImportEngine;
 import com.example.securefolder.utils.KeyManager;
+import com.example.securefolder.utils.ThumbnailStore;
+import com.example.securefolder.utils.VaultFilePager;
+import com.example.securefolder.utils.VaultMetadataRepository;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 public class PhotosActivity extends AppCompatActivity implements PhotosAdapter.OnPhotoActionListener {
 
     private RecyclerView recyclerView;
     private PhotosAdapter adapter;
-    private List<File> photoFiles = new ArrayList<>();
     private LinearLayout loadingLayout;
     private LinearLayout layoutSelection;
     private TextView tvSelectionCount;
     private FloatingActionButton fab;
 
     private File vaultDir;
-    private DatabaseHelper dbHelper;
+    private VaultMetadataRepository metadata;
+    private VaultFilePager pager;
+    private ImportStatusBar importStatus;
+    private ThumbnailStore thumbnails;
 
     private final ActivityResultLauncher<Intent> pickImageLauncher = registerForActivityResult(
             new ActivityResultContracts.StartActivityForResult(),
             result -> {
                 if (result.getResultCode() == Activity.RESULT_OK && result.getData() != null) {
-                    handleImageSelection(result.getData().getData());
+                    ImportEngine.getInstance(this).enqueue("PHOTO", ImportEngine.urisFrom(result.getData()));
                 }
             }
     );
@@ -61,7 +58,7 @@ public class PhotosActivity extends AppCompatActivity implements PhotosAdapter.O
             new ActivityResultContracts.StartIntentSenderForResult(),
             result -> {
                 if (result.getResultCode() == Activity.RESULT_OK) {
-                    Toast.makeText(this, "Original File Deleted.", Toast.LENGTH_SHORT).show();
+                    Toast.makeText(this, "Originals Deleted.", Toast.LENGTH_SHORT).show();
                 }
             }
     );
@@ -71,7 +68,8 @@ public class PhotosActivity extends AppCompatActivity implements PhotosAdapter.O
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_photos);
 
-        dbHelper = new DatabaseHelper(this);
+        metadata = VaultMetadataRepository.getInstance(this);
+        thumbnails = ThumbnailStore.getInstance(this);
         loadingLayout = findViewById(R.id.layoutLoading);
         layoutSelection = findViewById(R.id.layoutSelection);
         tvSelectionCount = findViewById(R.id.tvSelectionCount);
@@ -80,11 +78,16 @@ public class PhotosActivity extends AppCompatActivity implements PhotosAdapter.O
         recyclerView = findViewById(R.id.recyclerView);
         recyclerView.setLayoutManager(new GridLayoutManager(this, 3));
 
-        adapter = new PhotosAdapter(photoFiles, dbHelper, this);
+        adapter = new PhotosAdapter(metadata, thumbnails, this);
         recyclerView.setAdapter(adapter);
+        pager = new VaultFilePager(metadata, "PHOTO", this::showFiles);
+        pager.attachTo(recyclerView);
+        importStatus = new ImportStatusBar(this, this::loadFilesFromDB, deleteRequestLauncher);
+        importStatus.attach();
 
         fab.setOnClickListener(v -> {
             Intent intent = new Intent(Intent.ACTION_PICK, MediaStore.Images.Media.EXTERNAL_CONTENT_URI);
+            intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true); // Whole albums go to ImportEngine in one go
             pickImageLauncher.launch(intent);
         });
 
@@ -124,16 +127,20 @@ public class PhotosActivity extends AppCompatActivity implements PhotosAdapter.O
                 .setTitle("Delete " + selected.size() + " items?")
                 .setMessage("These items will be moved to Trash.")
                 .setPositiveButton("Delete", (dialog, which) -> {
+                    // One transaction for the whole selection, off the UI thread
+                    List<Integer> ids = new ArrayList<>(selected.size());
                     for (File f : selected) {
-                        // Use System Name (UUID) to find ID
-                        int id = dbHelper.getFileIdBySystemName(f.getName());
-                        if (id != -1) {
-                            dbHelper.setFileDeleted(id, true);
-                        }
+                        int id = metadata.getFileId(f.getName());
+                        if (id != -1) ids.add(id);
                     }
                     adapter.clearSelection();
-                    loadFilesFromDB();
-                    Toast.makeText(this, "Moved to Trash", Toast.LENGTH_SHORT).show();
+                    new Thread(() -> {
+                        metadata.setDeleted(ids, true);
+                        runOnUiThread(() -> {
+                            loadFilesFromDB();
+                            Toast.makeText(this, "Moved to Trash", Toast.LENGTH_SHORT).show();
+                        });
+                    }).start();
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
@@ -151,14 +158,12 @@ public class PhotosActivity extends AppCompatActivity implements PhotosAdapter.O
             for (File src : selected) {
                 try {
                     // Restore original name from DB
-                    String realName = dbHelper.getDisplayName(src.getName());
+                    String realName = metadata.getDisplayName(src.getName());
                     if (realName == null || realName.equals("Unknown")) realName = "Export_" + System.currentTimeMillis() + ".jpg";
 
                     File dest = new File(exportDir, "Restored_" + realName);
 
-                    FileInputStream fis = new FileInputStream(src);
-                    FileOutputStream fos = new FileOutputStream(dest);
-                    boolean success = CryptoManager.decrypt(KeyManager.getMasterKey(), fis, fos);
+                    boolean success = CryptoManager.decryptFile(KeyManager.getMasterKey(), src, dest);
 
                     if (success) {
                         count++;
@@ -176,132 +181,37 @@ public class PhotosActivity extends AppCompatActivity implements PhotosAdapter.O
         }).start();
     }
 
-    // --- IMPORT LOGIC (UUID FIX) ---
-    private void handleImageSelection(Uri uri) {
-        if (uri == null) return;
-        loadingLayout.setVisibility(View.VISIBLE);
-
-        new Thread(() -> {
-            try {
-                String originalPath = getRealPathFromURI(uri);
-                if (originalPath == null) originalPath = "Unknown_Location";
-
-                String originalName = getFileNameFromUri(uri);
-
-                // GENERATE RANDOM UUID (Invisible Vault)
-                String systemName = UUID.randomUUID().toString();
-
-                File outputFile = new File(vaultDir, systemName);
-                InputStream inputStream = getContentResolver().openInputStream(uri);
-                FileOutputStream outputStream = new FileOutputStream(outputFile);
-
-                boolean success = CryptoManager.encrypt(KeyManager.getMasterKey(), inputStream, outputStream);
-
-                if (success) {
-                    // Save UUID (System Name) + Real Name (Display Name)
-                    dbHelper.addFile("PHOTO", systemName, originalName, originalPath);
-
-                    // Delete Original
-                    boolean isDeleted = false;
-                    if (!originalPath.equals("Unknown_Location")) {
-                        File original = new File(originalPath);
-                        if (original.exists()) isDeleted = original.delete();
-                    }
-                    if (!isDeleted) {
-                        try {
-                            int rows = getContentResolver().delete(uri, null, null);
-                            if (rows == 0) requestDeletePermission(uri);
-                            else isDeleted = true;
-                        } catch (SecurityException e) {
-                            requestDeletePermission(uri);
-                        }
-                    }
-
-                    final boolean finalDeleted = isDeleted;
-                    runOnUiThread(() -> {
-                        loadingLayout.setVisibility(View.GONE);
-                        loadFilesFromDB();
-                        if (finalDeleted) Toast.makeText(this, "Encrypted & Deleted", Toast.LENGTH_SHORT).show();
-                    });
-
-                } else {
-                    runOnUiThread(() -> {
-                        loadingLayout.setVisibility(View.GONE);
-                        Toast.makeText(this, "Encryption Failed", Toast.LENGTH_SHORT).show();
-                    });
-                }
-
-            } catch (Exception e) {
-                e.printStackTrace();
-                runOnUiThread(() -> loadingLayout.setVisibility(View.GONE));
-            }
-        }).start();
-    }
-
-    private void requestDeletePermission(Uri uri) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
-            try {
-                List<Uri> uris = new ArrayList<>();
-                uris.add(uri);
-                PendingIntent pi = MediaStore.createDeleteRequest(getContentResolver(), uris);
-                deleteRequestLauncher.launch(new IntentSenderRequest.Builder(pi.getIntentSender()).build());
-            } catch (Exception e) { e.printStackTrace(); }
-        }
-    }
-
-    private String getRealPathFromURI(Uri contentUri) {
-        try {
-            String[] proj = { MediaStore.Images.Media.DATA };
-            Cursor cursor = getContentResolver().query(contentUri, proj, null, null, null);
-            if (cursor != null) {
-                int column_index = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA);
-                cursor.moveToFirst();
-                String path = cursor.getString(column_index);
-                cursor.close();
-                return path;
-            }
-        } catch (Exception e) {}
-        return null;
-    }
-
-    private String getFileNameFromUri(Uri uri) {
-        Cursor cursor = getContentResolver().query(uri, null, null, null, null);
-        if (cursor != null && cursor.moveToFirst()) {
-            int nameIndex = cursor.getColumnIndex(android.provider.OpenableColumns.DISPLAY_NAME);
-            if (nameIndex != -1) {
-                String name = cursor.getString(nameIndex);
-                cursor.close();
-                return name;
-            }
-            cursor.close();
-        }
-        return "Photo_" + System.currentTimeMillis();
+    private void loadFilesFromDB() {
+        pager.refresh(); // First page after one keyset query, the rest while scrolling
     }
 
-    private void loadFilesFromDB() {
-        photoFiles.clear();
-        Cursor cursor = dbHelper.getActiveFiles("PHOTO");
-        if (cursor != null && cursor.moveToFirst()) {
-            do {
-                // Get System Name (UUID) from DB
-                String sysName = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COL_SYSTEM_NAME));
-                File file = new File(vaultDir, sysName);
-                if (file.exists()) {
-                    photoFiles.add(file);
-                }
-            } while (cursor.moveToNext());
-            cursor.close();
-        }
-        adapter.notifyDataSetChanged();
+    private void showFiles(List<VaultMetadataRepository.FileMeta> loaded, boolean complete) {
+        List<File> files = new ArrayList<>(loaded.size());
+        // Pure index read: VaultReconciler keeps rows and vault files in step, no stat per row
+        for (VaultMetadataRepository.FileMeta meta : loaded) files.add(new File(vaultDir, meta.systemName));
+        adapter.submitList(files); // Diffed off the main thread; unchanged cells aren't rebound
     }
 
     private void openPhotoViewer(File file) {
         Intent intent = new Intent(this, PhotoViewerActivity.class);
         intent.putExtra("FILE_PATH", file.getAbsolutePath());
         intent.putExtra("FILE_NAME", file.getName()); // This is the UUID
+        // Only the keyset position: the viewer pages its neighbours in itself
+        VaultMetadataRepository.FileMeta meta = metadata.get(file.getName());
+        if (meta != null) {
+            intent.putExtra("FILE_ID", meta.id);
+            intent.putExtra("FILE_TIMESTAMP", meta.timestamp);
+        }
         startActivity(intent);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pager != null) pager.release();
+        if (importStatus != null) importStatus.detach();
+    }
+
     @Override
     public void onBackPressed() {
         if (adapter.getSelectedFiles().size() > 0) {
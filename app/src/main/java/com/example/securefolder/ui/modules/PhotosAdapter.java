@@ -1,25 +1,29 @@
 package com.example.securefolder.ui.modules;
 
+import android.graphics.Bitmap;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.securefolder.R;
-import com.example.securefolder.utils.DatabaseHelper;
+import com.example.securefolder.utils.ThumbnailStore;
+import com.example.securefolder.utils.VaultMetadataRepository;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.ViewHolder> {
+public class PhotosAdapter extends ListAdapter<File, PhotosAdapter.ViewHolder> {
 
-    private final List<File> files;
-    private final DatabaseHelper dbHelper; // To look up real names
+    private final VaultMetadataRepository metadata; // In-memory real names, no per-row query
+    private final ThumbnailStore thumbnails; // Grid only ever reads these, never the originals
     private final OnPhotoActionListener listener;
 
     // Selection State
@@ -31,10 +35,12 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.ViewHolder
         void onSelectionModeChanged(boolean active, int count);
     }
 
-    public PhotosAdapter(List<File> files, DatabaseHelper dbHelper, OnPhotoActionListener listener) {
-        this.files = files;
-        this.dbHelper = dbHelper;
+    public PhotosAdapter(VaultMetadataRepository metadata, ThumbnailStore thumbnails, OnPhotoActionListener listener) {
+        super(new VaultFileDiff()); // Diffs run on a background thread
+        this.metadata = metadata;
+        this.thumbnails = thumbnails;
         this.listener = listener;
+        setHasStableIds(true);
     }
 
     @NonNull
@@ -46,23 +52,20 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.ViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        File file = files.get(position);
+        File file = getItem(position);
 
-        // Lookup Display Name from DB (Because file name is now random UUID)
-        String displayName = dbHelper.getDisplayName(file.getName());
+        // Lookup Display Name from the metadata index (Because file name is now random UUID)
+        String displayName = metadata.getDisplayName(file.getName());
         holder.tvName.setText(displayName);
+        bindThumbnail(holder, file);
 
         // Handle Visual Selection
-        if (selectedFiles.contains(file)) {
-            holder.overlay.setVisibility(View.VISIBLE);
-        } else {
-            holder.overlay.setVisibility(View.GONE);
-        }
+        bindSelection(holder, file);
 
         // Click Listener
         holder.itemView.setOnClickListener(v -> {
             if (isSelectionMode) {
-                toggleSelection(file);
+                toggleSelection(file, holder.getAdapterPosition());
             } else {
                 listener.onPhotoClick(file);
             }
@@ -72,7 +75,7 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.ViewHolder
         holder.itemView.setOnLongClickListener(v -> {
             if (!isSelectionMode) {
                 isSelectionMode = true;
-                toggleSelection(file);
+                toggleSelection(file, holder.getAdapterPosition());
                 listener.onSelectionModeChanged(true, selectedFiles.size());
                 return true;
             }
@@ -80,7 +83,61 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.ViewHolder
         });
     }
 
-    private void toggleSelection(File file) {
+    private void bindThumbnail(ViewHolder holder, File file) {
+        String systemName = file.getName();
+        // Same item rebound (e.g. selection change): keep what is already shown
+        if (systemName.equals(holder.thumbnail.getTag())) return;
+
+        holder.thumbnail.setTag(systemName);
+        clearThumbnail(holder);
+        holder.thumbnail.setVisibility(View.GONE);
+        holder.placeholder.setVisibility(View.VISIBLE);
+        thumbnails.loadAsync("PHOTO", systemName, file, (name, bitmap) -> {
+            // The holder may have been recycled for another row meanwhile
+            if (!name.equals(holder.thumbnail.getTag())) {
+                thumbnails.release(bitmap);
+                return;
+            }
+            clearThumbnail(holder);
+            holder.thumbnail.setImageBitmap(bitmap);
+            holder.shown = bitmap;
+            holder.thumbnail.setVisibility(View.VISIBLE);
+            holder.placeholder.setVisibility(View.GONE);
+        });
+    }
+
+    /** Takes the thumbnail off the view, then hands it back so its buffer can be reused. */
+    private void clearThumbnail(ViewHolder holder) {
+        holder.thumbnail.setImageDrawable(null);
+        thumbnails.release(holder.shown);
+        holder.shown = null;
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        holder.thumbnail.setTag(null);
+        clearThumbnail(holder);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(VaultFileDiff.PAYLOAD_SELECTION)) {
+            bindSelection(holder, getItem(position)); // Just the overlay; name and thumbnail stay
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
+    private void bindSelection(ViewHolder holder, File file) {
+        holder.overlay.setVisibility(selectedFiles.contains(file) ? View.VISIBLE : View.GONE);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return metadata.getFileId(getItem(position).getName()); // DB primary key
+    }
+
+    private void toggleSelection(File file, int position) {
         if (selectedFiles.contains(file)) {
             selectedFiles.remove(file);
         } else {
@@ -91,14 +148,19 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.ViewHolder
             isSelectionMode = false;
         }
 
-        notifyDataSetChanged();
+        if (position != RecyclerView.NO_POSITION) notifyItemChanged(position, VaultFileDiff.PAYLOAD_SELECTION);
         listener.onSelectionModeChanged(isSelectionMode, selectedFiles.size());
     }
 
     public void clearSelection() {
         isSelectionMode = false;
+        Set<File> cleared = new HashSet<>(selectedFiles);
         selectedFiles.clear();
-        notifyDataSetChanged();
+        // Rebind only the cells that were selected
+        List<File> current = getCurrentList();
+        for (int i = 0; i < current.size(); i++) {
+            if (cleared.contains(current.get(i))) notifyItemChanged(i, VaultFileDiff.PAYLOAD_SELECTION);
+        }
         listener.onSelectionModeChanged(false, 0);
     }
 
@@ -106,18 +168,18 @@ public class PhotosAdapter extends RecyclerView.Adapter<PhotosAdapter.ViewHolder
         return new ArrayList<>(selectedFiles);
     }
 
-    @Override
-    public int getItemCount() {
-        return files.size();
-    }
-
     public static class ViewHolder extends RecyclerView.ViewHolder {
         TextView tvName;
+        ImageView thumbnail;
+        Bitmap shown; // Held from ThumbnailStore while 'thumbnail' displays it
+        LinearLayout placeholder;
         FrameLayout overlay;
 
         public ViewHolder(@NonNull View itemView) {
             super(itemView);
             tvName = itemView.findViewById(R.id.tvFileName);
+            thumbnail = itemView.findViewById(R.id.ivThumbnail);
+            placeholder = itemView.findViewById(R.id.layoutPlaceholder);
             overlay = itemView.findViewById(R.id.overlaySelection);
         }
     }
@@ -104,7 +104,7 @@ public class SettingsActivity extends AppCompatActivity {
                 .setMessage("This will delete all files, reset the app, and remove your password. This action is irreversible.")
                 .setPositiveButton("Wipe", (d, w) -> {
                     // 1. Wipe Database
-                    DatabaseHelper db = new DatabaseHelper(this);
+                    DatabaseHelper db = DatabaseHelper.getInstance(this);
                     db.getWritableDatabase().execSQL("DELETE FROM " + DatabaseHelper.TABLE_FILES);
 
                     // 2. Clear Preferences (Keys, Flags)
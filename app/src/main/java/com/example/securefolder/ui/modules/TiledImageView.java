@@ -0,0 +1,230 @@
+package com.example.securefolder.ui.modules;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+import com.example.securefolder.utils.RegionTileDecoder;
+
+/**
+ * Pan / pinch-zoom photo view for the viewer.
+ *
+ * Always draws the screen-sized sampled bitmap underneath. Once zoomed in past its
+ * resolution, full-detail tiles from a RegionTileDecoder are drawn on top, for the
+ * visible area only; until a tile arrives the sampled bitmap shows through.
+ */
+public class TiledImageView extends View {
+
+    private static final float MAX_ZOOM = 2f; // Screen px per full-resolution px
+
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final RectF dst = new RectF();
+    private final ScaleGestureDetector scaleDetector;
+    private final GestureDetector gestureDetector;
+
+    private Bitmap base;
+    private RegionTileDecoder tiles;
+    private int imageWidth, imageHeight; // Full resolution
+    private float scale = 1f;            // Screen px per image px
+    private float minScale = 1f;         // Whole image fits
+    private float offsetX, offsetY;      // Screen position of the image's top-left corner
+
+    public TiledImageView(Context context) {
+        this(context, null);
+    }
+
+    public TiledImageView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomTo(scale * detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                float before = offsetX;
+                offsetX -= distanceX;
+                offsetY -= distanceY;
+                clampOffsets();
+                // Panned against the left/right edge: let a parent pager take the swipe
+                if (offsetX == before && Math.abs(distanceX) > Math.abs(distanceY) && getParent() != null) {
+                    getParent().requestDisallowInterceptTouchEvent(false);
+                }
+                invalidate();
+                return true;
+            }
+
+            @Override
+            public boolean onDoubleTap(MotionEvent e) {
+                // Fitted -> 1:1 full resolution at the tap, anything else -> fitted
+                float target = isZoomed() ? minScale : Math.max(minScale * 2f, Math.min(1f, maxScale()));
+                zoomTo(target, e.getX(), e.getY());
+                return true;
+            }
+        });
+    }
+
+    // --- CONTENT ---
+
+    /**
+     * Shows 'bitmap' stretched over a full-resolution image of fullWidth x fullHeight.
+     * A new size resets the zoom; the same size (e.g. thumbnail -> sampled) keeps it.
+     */
+    public void setImage(Bitmap bitmap, int fullWidth, int fullHeight) {
+        boolean resized = fullWidth != imageWidth || fullHeight != imageHeight;
+        base = bitmap;
+        imageWidth = fullWidth;
+        imageHeight = fullHeight;
+        if (resized) fitToView();
+        invalidate();
+    }
+
+    /** Enables full-detail zoom. Takes ownership; released with the view's release(). */
+    public void setTileDecoder(RegionTileDecoder decoder) {
+        if (tiles != null) tiles.release();
+        tiles = decoder;
+        if (decoder != null) {
+            // Exact size now; the sampled estimate can be a few px off
+            float ratio = decoder.getWidth() / (float) Math.max(1, imageWidth);
+            imageWidth = decoder.getWidth();
+            imageHeight = decoder.getHeight();
+            minScale = fitScale();
+            scale = Math.max(minScale, scale / ratio);
+            clampOffsets();
+            decoder.setListener(this::invalidate);
+        }
+        invalidate();
+    }
+
+    /** Drops the image and its tiles; the next setImage() starts fitted. */
+    public void release() {
+        setTileDecoder(null);
+        base = null;
+        imageWidth = 0;
+        imageHeight = 0;
+    }
+
+    // --- GEOMETRY ---
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        fitToView();
+    }
+
+    private float fitScale() {
+        if (imageWidth == 0 || imageHeight == 0 || getWidth() == 0) return 1f;
+        return Math.min(getWidth() / (float) imageWidth, getHeight() / (float) imageHeight);
+    }
+
+    public boolean isZoomed() {
+        return scale > minScale * 1.01f;
+    }
+
+    private float maxScale() {
+        return Math.max(minScale, MAX_ZOOM);
+    }
+
+    private void fitToView() {
+        minScale = fitScale();
+        scale = minScale;
+        clampOffsets();
+    }
+
+    private void zoomTo(float target, float focusX, float focusY) {
+        float newScale = Math.max(minScale, Math.min(maxScale(), target));
+        float factor = newScale / scale;
+        // Keep the image point under the focus where it is
+        offsetX = focusX - (focusX - offsetX) * factor;
+        offsetY = focusY - (focusY - offsetY) * factor;
+        scale = newScale;
+        clampOffsets();
+        invalidate();
+    }
+
+    /** Centres the image along an axis where it is smaller than the view, else keeps the edges in. */
+    private void clampOffsets() {
+        float contentWidth = imageWidth * scale;
+        float contentHeight = imageHeight * scale;
+        if (contentWidth <= getWidth()) offsetX = (getWidth() - contentWidth) / 2f;
+        else offsetX = Math.min(0, Math.max(getWidth() - contentWidth, offsetX));
+        if (contentHeight <= getHeight()) offsetY = (getHeight() - contentHeight) / 2f;
+        else offsetY = Math.min(0, Math.max(getHeight() - contentHeight, offsetY));
+    }
+
+    /** Largest power of two with at least one decoded px per screen px. */
+    private static int sampleFor(float scale) {
+        int sample = 1;
+        while (sample * 2 <= 1f / scale) sample *= 2;
+        return sample;
+    }
+
+    // --- INPUT & DRAWING ---
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        // While zoomed or pinching, drags pan the image instead of paging
+        if (getParent() != null && (isZoomed() || event.getPointerCount() > 1)) {
+            getParent().requestDisallowInterceptTouchEvent(true);
+        }
+        boolean handled = scaleDetector.onTouchEvent(event);
+        handled |= gestureDetector.onTouchEvent(event);
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (base == null || imageWidth == 0) return;
+
+        dst.set(offsetX, offsetY, offsetX + imageWidth * scale, offsetY + imageHeight * scale);
+        canvas.drawBitmap(base, null, dst, paint);
+        if (tiles == null) return;
+
+        int sample = sampleFor(scale);
+        // Tiles only help once they carry more detail than the sampled bitmap
+        if (1f / sample <= base.getWidth() / (float) imageWidth) {
+            tiles.requestVisible(sample, 0, 0, -1, -1); // Drops anything still queued
+            return;
+        }
+
+        // Visible part of the image, in full-resolution px
+        float left = Math.max(0, -offsetX / scale);
+        float top = Math.max(0, -offsetY / scale);
+        float right = Math.min(imageWidth, (getWidth() - offsetX) / scale);
+        float bottom = Math.min(imageHeight, (getHeight() - offsetY) / scale);
+        if (right <= left || bottom <= top) return;
+
+        int span = RegionTileDecoder.tileSpan(sample);
+        int firstColumn = (int) (left / span);
+        int firstRow = (int) (top / span);
+        int lastColumn = (int) ((right - 1) / span);
+        int lastRow = (int) ((bottom - 1) / span);
+        tiles.requestVisible(sample, firstColumn, firstRow, lastColumn, lastRow);
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                Bitmap tile = tiles.getTile(sample, column, row);
+                if (tile == null) continue;
+                float x = offsetX + column * span * scale;
+                float y = offsetY + row * span * scale;
+                dst.set(x, y, x + tile.getWidth() * sample * scale, y + tile.getHeight() * sample * scale);
+                canvas.drawBitmap(tile, null, dst, paint);
+            }
+        }
+    }
+}
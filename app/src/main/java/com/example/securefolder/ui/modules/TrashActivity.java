@@ -13,6 +13,8 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.securefolder.R;
 import com.example.securefolder.utils.DatabaseHelper;
+import com.example.securefolder.utils.VaultFilePager;
+import com.example.securefolder.utils.VaultMetadataRepository;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
@@ -21,7 +23,11 @@ public class TrashActivity extends AppCompatActivity {
 
     private RecyclerView rv;
     private DatabaseHelper dbHelper;
+    private VaultMetadataRepository metadata;
     private List<TrashItem> trashItems;
+    private final List<TrashItem> otherItems = new ArrayList<>(); // Notes and passwords, above the files
+    private TrashAdapter adapter;
+    private VaultFilePager pager;
 
     static class TrashItem {
         int id;
@@ -41,14 +47,34 @@ public class TrashActivity extends AppCompatActivity {
 
         rv = findViewById(R.id.rvTrash);
         rv.setLayoutManager(new LinearLayoutManager(this));
-        dbHelper = new DatabaseHelper(this);
+        dbHelper = DatabaseHelper.getInstance(this);
+        metadata = VaultMetadataRepository.getInstance(this);
         trashItems = new ArrayList<>();
+        adapter = new TrashAdapter(trashItems);
+        rv.setAdapter(adapter);
+
+        // Trashed files of every type, a keyset page at a time off the main thread
+        pager = new VaultFilePager(metadata, null, true, (files, complete) -> {
+            trashItems.clear();
+            trashItems.addAll(otherItems);
+            for (VaultMetadataRepository.FileMeta meta : files) {
+                trashItems.add(new TrashItem(meta.id, "File: " + meta.displayName, "FILE", meta.systemName));
+            }
+            adapter.notifyDataSetChanged();
+        });
+        pager.attachTo(rv);
 
         loadTrash();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (pager != null) pager.release();
+    }
+
     private void loadTrash() {
-        trashItems.clear();
+        otherItems.clear();
 
         // 1. Load Notes
         Cursor cNote = dbHelper.getAllNotes(true);
@@ -57,7 +83,7 @@ public class TrashActivity extends AppCompatActivity {
                 int id = cNote.getInt(cNote.getColumnIndexOrThrow(DatabaseHelper.COL_ID));
                 // Note: Title is encrypted, ideally decrypt here, but we'll show "Hidden Note" for speed if CryptoManager isn't handy or show generic
                 // For now, let's just show ID to avoid crashing if title is encrypted
-                trashItems.add(new TrashItem(id, "Note #" + id, "NOTE", null));
+                otherItems.add(new TrashItem(id, "Note #" + id, "NOTE", null));
             } while (cNote.moveToNext());
             cNote.close();
         }
@@ -67,24 +93,13 @@ public class TrashActivity extends AppCompatActivity {
         if (cPass != null && cPass.moveToFirst()) {
             do {
                 int id = cPass.getInt(cPass.getColumnIndexOrThrow(DatabaseHelper.COL_ID));
-                trashItems.add(new TrashItem(id, "Password #" + id, "PASS", null));
+                otherItems.add(new TrashItem(id, "Password #" + id, "PASS", null));
             } while (cPass.moveToNext());
             cPass.close();
         }
 
-        // 3. Load Files (Photos/Videos)
-        Cursor cFiles = dbHelper.getDeletedFiles();
-        if (cFiles != null && cFiles.moveToFirst()) {
-            do {
-                int id = cFiles.getInt(cFiles.getColumnIndexOrThrow(DatabaseHelper.COL_ID));
-                String sysName = cFiles.getString(cFiles.getColumnIndexOrThrow(DatabaseHelper.COL_SYSTEM_NAME));
-                String displayName = cFiles.getString(cFiles.getColumnIndexOrThrow(DatabaseHelper.COL_DISPLAY_NAME));
-                trashItems.add(new TrashItem(id, "File: " + displayName, "FILE", sysName));
-            } while (cFiles.moveToNext());
-            cFiles.close();
-        }
-
-        rv.setAdapter(new TrashAdapter(trashItems));
+        // 3. Files (Photos/Videos/Documents): paged in by the pager
+        pager.refresh();
     }
 
     class TrashAdapter extends RecyclerView.Adapter<TrashAdapter.ViewHolder> {
@@ -130,7 +145,7 @@ public class TrashActivity extends AppCompatActivity {
     private void restoreItem(TrashItem item) {
         if (item.type.equals("NOTE")) dbHelper.setNoteDeleted(item.id, false);
         if (item.type.equals("PASS")) dbHelper.setPasswordDeleted(item.id, false);
-        if (item.type.equals("FILE")) dbHelper.setFileDeleted(item.id, false);
+        if (item.type.equals("FILE")) metadata.setDeleted(item.id, false);
 
         Toast.makeText(this, "Restored", Toast.LENGTH_SHORT).show();
         loadTrash();
@@ -151,7 +166,7 @@ public class TrashActivity extends AppCompatActivity {
             File f2 = new File(videoDir, item.extraInfo);
             if (f2.exists()) f2.delete();
 
-            dbHelper.deleteFileRecordPermanently(item.id);
+            metadata.deletePermanently(item.id);
         }
         Toast.makeText(this, "Deleted Forever", Toast.LENGTH_SHORT).show();
         loadTrash();
@@ -0,0 +1,27 @@
+package com.example.securefolder.ui.modules;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import java.io.File;
+
+/**
+ * Diffing for the vault file grids (photos, videos, documents).
+ *
+ * Vault files are named by their UUID and never rewritten in place, so the name is
+ * both the identity and the content: a changed list is only ever inserts and removes.
+ */
+class VaultFileDiff extends DiffUtil.ItemCallback<File> {
+
+    /** notifyItemChanged payload: only the selection overlay needs rebinding. */
+    static final Object PAYLOAD_SELECTION = new Object();
+
+    @Override
+    public boolean areItemsTheSame(@NonNull File oldItem, @NonNull File newItem) {
+        return oldItem.getName().equals(newItem.getName());
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull File oldItem, @NonNull File newItem) {
+        return oldItem.getName().equals(newItem.getName());
+    }
+}
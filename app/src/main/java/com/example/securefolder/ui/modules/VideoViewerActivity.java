@@ -20,17 +20,18 @@ import androidx.media3.exoplayer.source.ProgressiveMediaSource;
 import androidx.media3.ui.PlayerView;
 import com.example.securefolder.R;
 import com.example.securefolder.utils.CryptoManager;
-import com.example.securefolder.utils.DatabaseHelper;
 import com.example.securefolder.utils.EncryptedDataSourceFactory;
 import com.example.securefolder.utils.KeyManager;
+import com.example.securefolder.utils.VaultMetadataRepository;
+import com.example.securefolder.utils.VaultMigrator;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 
 @OptIn(markerClass = UnstableApi.class)
 public class VideoViewerActivity extends AppCompatActivity {
 
-    private DatabaseHelper dbHelper;
+    private static final int READ_AHEAD_SEGMENTS = 8; // ~512 KiB, enough for high-bitrate 4K
+
+    private VaultMetadataRepository metadata;
     private String currentFilePath;
     private String currentFileName;
     private int fileId = -1;
@@ -45,7 +46,7 @@ public class VideoViewerActivity extends AppCompatActivity {
         getWindow().setFlags(WindowManager.LayoutParams.FLAG_SECURE, WindowManager.LayoutParams.FLAG_SECURE);
         setContentView(R.layout.activity_video_viewer);
 
-        dbHelper = new DatabaseHelper(this);
+        metadata = VaultMetadataRepository.getInstance(this);
         playerView = findViewById(R.id.playerView);
         TextView tvTitle = findViewById(R.id.tvVideoTitle);
         ImageButton btnUnlock = findViewById(R.id.btnUnlock);
@@ -56,8 +57,8 @@ public class VideoViewerActivity extends AppCompatActivity {
 
         if (currentFilePath == null) { finish(); return; }
 
-        fileId = dbHelper.getFileIdBySystemName(currentFileName);
-        String realName = dbHelper.getDisplayName(currentFileName);
+        fileId = metadata.getFileId(currentFileName);
+        String realName = metadata.getDisplayName(currentFileName);
         tvTitle.setText(realName != null ? realName : "Secure Video");
 
         btnUnlock.setOnClickListener(v -> restoreVideo());
@@ -69,17 +70,21 @@ public class VideoViewerActivity extends AppCompatActivity {
     private void initializePlayer() {
         File file = new File(currentFilePath);
 
-        // 1. Setup LoadControl to buffer MORE data (Helps with decryption lag)
+        // 1. Setup LoadControl. Decryption runs ahead on its own thread now,
+        // so we no longer need a huge buffer to hide decrypt lag.
         DefaultLoadControl loadControl = new DefaultLoadControl.Builder()
                 .setBufferDurationsMs(
-                        3000,  // Min buffer before start
-                        50000, // Max buffer
-                        1500,  // Buffer for playback
+                        2000,  // Min buffer before start
+                        15000, // Max buffer
+                        1000,  // Buffer for playback
                         2000   // Buffer for rebuffer
                 ).build();
 
-        // 2. Create Factory
-        EncryptedDataSourceFactory factory = new EncryptedDataSourceFactory(file, KeyManager.getMasterKey());
+        // 2. Create Factory (decrypts READ_AHEAD_SEGMENTS x 64 KiB ahead of the player)
+        EncryptedDataSourceFactory factory = new EncryptedDataSourceFactory(file, KeyManager.getMasterKey(), READ_AHEAD_SEGMENTS);
+
+        // Legacy files can't be verified per range, so upgrade this one ahead of the bulk migration
+        if (!CryptoManager.isSegmented(file)) VaultMigrator.migrateFileAsync(this, file);
 
         // 3. Create Media Source
         MediaSource mediaSource = new ProgressiveMediaSource.Factory(factory)
@@ -113,7 +118,7 @@ public class VideoViewerActivity extends AppCompatActivity {
                 .setTitle("Move to Trash?")
                 .setPositiveButton("Delete", (dialog, which) -> {
                     if (fileId != -1) {
-                        dbHelper.setFileDeleted(fileId, true);
+                        metadata.setDeleted(fileId, true);
                         Toast.makeText(this, "Moved to Trash", Toast.LENGTH_SHORT).show();
                         finish();
                     }
@@ -126,19 +131,17 @@ public class VideoViewerActivity extends AppCompatActivity {
         if (player != null) player.pause();
         new Thread(() -> {
             try {
-                String realName = dbHelper.getDisplayName(currentFileName);
+                String realName = metadata.getDisplayName(currentFileName);
                 if (realName == null) realName = "Restored_Vid_" + System.currentTimeMillis() + ".mp4";
 
                 File moviesDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_MOVIES);
                 File destFile = new File(moviesDir, realName);
 
-                FileInputStream fis = new FileInputStream(currentFilePath);
-                FileOutputStream fos = new FileOutputStream(destFile);
-                boolean success = CryptoManager.decrypt(KeyManager.getMasterKey(), fis, fos);
+                boolean success = CryptoManager.decryptFile(KeyManager.getMasterKey(), new File(currentFilePath), destFile);
 
                 if (success) {
                     new File(currentFilePath).delete();
-                    if (fileId != -1) dbHelper.deleteFileRecordPermanently(fileId);
+                    if (fileId != -1) metadata.deletePermanently(fileId);
                     MediaScannerConnection.scanFile(this, new String[]{destFile.getAbsolutePath()}, null, null);
                     runOnUiThread(() -> {
                         Toast.makeText(this, "Restored to Movies", Toast.LENGTH_LONG).show();
@@ -12,6 +12,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -28,6 +29,7 @@ public class BackupHelper {
         stagingDir.mkdirs();
 
         try {
+            DatabaseHelper.getInstance(context).checkpoint(); // WAL: recent commits aren't in the .db file yet
             copyFile(dbFile, new File(stagingDir, "SecureVault.db"));
             copyDirectory(vaultRoot, new File(stagingDir, "Vault"));
 
@@ -71,12 +73,20 @@ public class BackupHelper {
         return context.getContentResolver().insert(MediaStore.Files.getContentUri("external"), values);
     }
 
+    /**
+     * Plain copy via transferTo, so the kernel moves the bytes without a user-space buffer.
+     */
     private static void copyFile(File src, File dst) throws IOException {
-        try (FileInputStream in = new FileInputStream(src);
-             FileOutputStream out = new FileOutputStream(dst)) {
-            byte[] buf = new byte[1024];
-            int len;
-            while ((len = in.read(buf)) > 0) out.write(buf, 0, len);
+        try (FileChannel in = new FileInputStream(src).getChannel();
+             FileChannel out = new FileOutputStream(dst).getChannel()) {
+            long size = in.size();
+            long position = 0;
+            // transferTo may move less than asked (large files, some kernels), so loop
+            while (position < size) {
+                long moved = in.transferTo(position, size - position, out);
+                if (moved <= 0) throw new IOException("Copy stalled at " + position + " of " + src);
+                position += moved;
+            }
         }
     }
 
@@ -86,7 +96,10 @@ public class BackupHelper {
             String[] children = src.list();
             if (children != null) {
                 for (String child : children) {
-                    copyDirectory(new File(src, child), new File(dst, child));
+                    File next = new File(src, child);
+                    // Vault files are bare UUIDs; ".part" and ".migrating" are unfinished writes
+                    if (child.indexOf('.') != -1 && next.isFile()) continue;
+                    copyDirectory(next, new File(dst, child));
                 }
             }
         } else {
@@ -113,12 +126,14 @@ public class BackupHelper {
             String relativePath = sourceFile.getAbsolutePath().substring(rootDir.getAbsolutePath().length() + 1);
             ZipEntry ze = new ZipEntry(relativePath);
             zos.putNextEntry(ze);
+            byte[] buffer = BufferPool.acquire(BufferPool.COPY);
             try (FileInputStream fis = new FileInputStream(sourceFile)) {
-                byte[] buffer = new byte[1024];
                 int len;
-                while ((len = fis.read(buffer)) > 0) {
+                while ((len = fis.read(buffer, 0, BufferPool.COPY)) > 0) {
                     zos.write(buffer, 0, len);
                 }
+            } finally {
+                BufferPool.release(buffer);
             }
             zos.closeEntry();
         }
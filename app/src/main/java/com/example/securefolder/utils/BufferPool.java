@@ -0,0 +1,121 @@
+package com.example.securefolder.utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Shared, size-classed pool of byte[] buffers for the crypto and copy paths.
+ *
+ * Size classes are powers of two from 4 KiB to 1 MiB. acquire() may return a
+ * larger array than requested, so callers must always pass explicit lengths.
+ * Buffers are wiped on release so decrypted data never lingers in the pool.
+ */
+public final class BufferPool {
+
+    public static final int SMALL = 4 * 1024;
+    public static final int COPY = 64 * 1024; // Default for plain file copies
+
+    private static final int MIN_SHIFT = 12; // 4 KiB
+    private static final int MAX_SHIFT = 20; // 1 MiB
+    private static final int MAX_PER_CLASS = 8;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final ArrayDeque<byte[]>[] pools = new ArrayDeque[MAX_SHIFT - MIN_SHIFT + 1];
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final ArrayDeque<ByteBuffer>[] directPools = new ArrayDeque[MAX_SHIFT - MIN_SHIFT + 1];
+
+    private static final byte[] ZEROS = new byte[SMALL];
+
+    static {
+        for (int i = 0; i < pools.length; i++) pools[i] = new ArrayDeque<>(MAX_PER_CLASS);
+        for (int i = 0; i < directPools.length; i++) directPools[i] = new ArrayDeque<>(MAX_PER_CLASS);
+    }
+
+    private BufferPool() {}
+
+    /**
+     * Returns a buffer of at least minSize bytes. Sizes above 1 MiB are not pooled.
+     */
+    public static byte[] acquire(int minSize) {
+        int cls = sizeClass(minSize);
+        if (cls < 0) return new byte[minSize];
+
+        ArrayDeque<byte[]> pool = pools[cls];
+        synchronized (pool) {
+            byte[] buffer = pool.pollFirst();
+            if (buffer != null) return buffer;
+        }
+        return new byte[1 << (cls + MIN_SHIFT)];
+    }
+
+    /**
+     * Returns a buffer to the pool. Null and non-pool-sized arrays are ignored.
+     */
+    public static void release(byte[] buffer) {
+        if (buffer == null) return;
+        int cls = sizeClass(buffer.length);
+        if (cls < 0 || buffer.length != 1 << (cls + MIN_SHIFT)) return;
+
+        Arrays.fill(buffer, (byte) 0);
+        ArrayDeque<byte[]> pool = pools[cls];
+        synchronized (pool) {
+            if (pool.size() < MAX_PER_CLASS) pool.offerFirst(buffer);
+        }
+    }
+
+    // --- DIRECT BUFFERS (FileChannel / Cipher ByteBuffer paths) ---
+
+    /**
+     * Returns a cleared direct buffer with at least minSize bytes of capacity.
+     * Direct buffers are expensive to allocate, so always hand them back with releaseDirect().
+     */
+    public static ByteBuffer acquireDirect(int minSize) {
+        int cls = sizeClass(minSize);
+        if (cls < 0) return ByteBuffer.allocateDirect(minSize);
+
+        ArrayDeque<ByteBuffer> pool = directPools[cls];
+        synchronized (pool) {
+            ByteBuffer buffer = pool.pollFirst();
+            if (buffer != null) return buffer;
+        }
+        return ByteBuffer.allocateDirect(1 << (cls + MIN_SHIFT));
+    }
+
+    /**
+     * Wipes a direct buffer and returns it to the pool. Null and odd-sized buffers are ignored.
+     */
+    public static void releaseDirect(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return;
+        int cls = sizeClass(buffer.capacity());
+        if (cls < 0 || buffer.capacity() != 1 << (cls + MIN_SHIFT)) return;
+
+        buffer.clear();
+        while (buffer.hasRemaining()) buffer.put(ZEROS, 0, Math.min(ZEROS.length, buffer.remaining()));
+        buffer.clear();
+        ArrayDeque<ByteBuffer> pool = directPools[cls];
+        synchronized (pool) {
+            if (pool.size() < MAX_PER_CLASS) pool.offerFirst(buffer);
+        }
+    }
+
+    /** Drops every pooled buffer (e.g. on lock or memory pressure). */
+    public static void clear() {
+        for (ArrayDeque<byte[]> pool : pools) {
+            synchronized (pool) {
+                pool.clear();
+            }
+        }
+        for (ArrayDeque<ByteBuffer> pool : directPools) {
+            synchronized (pool) {
+                pool.clear();
+            }
+        }
+    }
+
+    private static int sizeClass(int size) {
+        if (size > 1 << MAX_SHIFT) return -1;
+        int shift = Math.max(MIN_SHIFT, 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1));
+        return shift - MIN_SHIFT;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.securefolder.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read side of the FileChannel engine: hands out byte ranges of a file as ByteBuffers.
+ *
+ * Large files are memory-mapped in fixed windows, so a range is just a view into the
+ * page cache with no copy. Windows are capped so 32-bit devices don't run out of
+ * address space on multi-GB videos. Small files are read into the caller's buffer.
+ *
+ * Safe to use from several workers at once.
+ */
+class ChannelSource {
+
+    static final long MMAP_THRESHOLD = 4L * 1024 * 1024; // Below this a read is cheaper than a mapping
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long length;
+    private final long firstOffset;
+    private final long windowSize;
+    private final MappedByteBuffer[] windows;
+
+    /**
+     * 'alignment' is the unit ranges are requested in (one segment); windows are
+     * a multiple of it so a range never straddles two mappings.
+     */
+    ChannelSource(FileChannel channel, long length, long firstOffset, int alignment) {
+        this.channel = channel;
+        this.length = length;
+        if (length >= MMAP_THRESHOLD) {
+            this.windowSize = Math.max(1, WINDOW_SIZE / alignment) * alignment;
+            this.windows = new MappedByteBuffer[(int) ((length - firstOffset + windowSize - 1) / windowSize)];
+        } else {
+            this.windowSize = 0;
+            this.windows = null;
+        }
+        this.firstOffset = firstOffset;
+    }
+
+    boolean isMapped() {
+        return windows != null;
+    }
+
+    /**
+     * Returns [position, position + len) ready to read. Either a slice of a mapping
+     * or 'scratch' (direct, at least len bytes) filled from the channel.
+     */
+    ByteBuffer range(long position, int len, ByteBuffer scratch) throws IOException {
+        if (windows != null) {
+            int w = (int) ((position - firstOffset) / windowSize);
+            MappedByteBuffer window = window(w);
+            int start = (int) (position - firstOffset - w * windowSize);
+            ByteBuffer view = window.duplicate(); // Own position/limit per worker
+            view.limit(start + len).position(start);
+            return view;
+        }
+
+        scratch.clear().limit(len);
+        while (scratch.hasRemaining()) {
+            int read = channel.read(scratch, position + scratch.position());
+            if (read == -1) throw new EOFException("Short read at " + position);
+        }
+        scratch.flip();
+        return scratch;
+    }
+
+    private MappedByteBuffer window(int w) throws IOException {
+        synchronized (windows) {
+            if (windows[w] == null) {
+                long start = firstOffset + w * windowSize;
+                windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, length - start));
+                // Ranges are requested roughly in order, so older windows can go (unmapped on GC)
+                if (w >= 2) windows[w - 2] = null;
+            }
+            return windows[w];
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.securefolder.utils;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+/**
+ * Caches for the expensive parts of the JCE:
+ * 1. Per-thread Cipher / Mac instances (skips the provider lookup in getInstance).
+ * 2. Derived per-file keys, so reopening a file skips HKDF.
+ *
+ * Cached instances are for single-shot work (init, then doFinal) on the calling thread.
+ * Don't keep them in fields or hold them across a write to someone else's stream:
+ * that stream may borrow the same instance. Long streaming passes use their own Cipher.
+ * Everything is dropped by invalidate(), which KeyManager.clearKey() calls.
+ */
+public final class CryptoCache {
+
+    private static final int MAX_FILE_KEYS = 128;
+
+    private static final AtomicInteger generation = new AtomicInteger();
+
+    private static class ThreadCache {
+        int generation = -1;
+        final Map<String, Cipher> ciphers = new HashMap<>();
+        final Map<String, Mac> macs = new HashMap<>();
+    }
+
+    private static final ThreadLocal<ThreadCache> threadCache = new ThreadLocal<ThreadCache>() {
+        @Override
+        protected ThreadCache initialValue() {
+            return new ThreadCache();
+        }
+    };
+
+    // Derived file keys, keyed by header salt, valid only for 'fileKeysOwner'
+    private static final Map<ByteBuffer, SecretKey> fileKeys =
+            new LinkedHashMap<ByteBuffer, SecretKey>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, SecretKey> eldest) {
+                    return size() > MAX_FILE_KEYS;
+                }
+            };
+    private static SecretKey fileKeysOwner;
+
+    private CryptoCache() {}
+
+    // --- CIPHER / MAC INSTANCES ---
+
+    /**
+     * Returns this thread's Cipher for the transformation. Callers must init() it before use.
+     */
+    public static Cipher cipher(String transformation) throws GeneralSecurityException {
+        ThreadCache cache = current();
+        Cipher cipher = cache.ciphers.get(transformation);
+        if (cipher == null) {
+            cipher = Cipher.getInstance(transformation);
+            cache.ciphers.put(transformation, cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * Returns this thread's Mac for the algorithm. Callers must init() it before use.
+     */
+    public static Mac mac(String algorithm) throws GeneralSecurityException {
+        ThreadCache cache = current();
+        Mac mac = cache.macs.get(algorithm);
+        if (mac == null) {
+            mac = Mac.getInstance(algorithm);
+            cache.macs.put(algorithm, mac);
+        }
+        return mac;
+    }
+
+    private static ThreadCache current() {
+        ThreadCache cache = threadCache.get();
+        int gen = generation.get();
+        if (cache.generation != gen) {
+            // Instances may still hold the old key schedule, so start over
+            cache.ciphers.clear();
+            cache.macs.clear();
+            cache.generation = gen;
+        }
+        return cache;
+    }
+
+    // --- DERIVED KEYS ---
+
+    static SecretKey getFileKey(SecretKey masterKey, byte[] salt) {
+        synchronized (fileKeys) {
+            if (fileKeysOwner != masterKey) return null;
+            return fileKeys.get(ByteBuffer.wrap(salt));
+        }
+    }
+
+    static void putFileKey(SecretKey masterKey, byte[] salt, SecretKey fileKey) {
+        synchronized (fileKeys) {
+            if (fileKeysOwner != masterKey) {
+                fileKeys.clear();
+                fileKeysOwner = masterKey;
+            }
+            fileKeys.put(ByteBuffer.wrap(salt.clone()), fileKey);
+        }
+    }
+
+    /**
+     * Drops all cached ciphers and keys. Other threads drop theirs on next use.
+     */
+    public static void invalidate() {
+        generation.incrementAndGet();
+        synchronized (fileKeys) {
+            fileKeys.clear();
+            fileKeysOwner = null;
+        }
+    }
+}
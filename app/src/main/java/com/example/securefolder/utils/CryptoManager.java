@@ -2,13 +2,24 @@ package com.example.securefolder.utils;
 
 import android.security.keystore.KeyGenParameterSpec;
 import android.security.keystore.KeyProperties;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
 
 /**
  * Handles Hardware-Backed Encryption.
@@ -23,9 +34,14 @@ public class CryptoManager {
     private static final String BLOCK_MODE = KeyProperties.BLOCK_MODE_GCM;
     private static final String PADDING = KeyProperties.ENCRYPTION_PADDING_NONE;
     private static final String TRANSFORMATION = ALGORITHM + "/" + BLOCK_MODE + "/" + PADDING;
+    private static final int LEGACY_IV_SIZE = 12;
+    private static final int LEGACY_TAG_SIZE = 16;
 
     private KeyStore keyStore;
 
+    // Resolved keystore key, dropped by clearCaches()
+    private static volatile SecretKey keystoreKey;
+
     public CryptoManager() {
         try {
             keyStore = KeyStore.getInstance(ANDROID_KEYSTORE);
@@ -39,11 +55,17 @@ public class CryptoManager {
 
     private SecretKey getSecretKey() {
         try {
+            // Keystore lookups are slow, resolve the key once per session
+            SecretKey key = keystoreKey;
+            if (key != null) return key;
+
             // Check if key exists
             if (!keyStore.containsAlias(KEY_ALIAS)) {
                 generateKey();
             }
-            return ((KeyStore.SecretKeyEntry) keyStore.getEntry(KEY_ALIAS, null)).getSecretKey();
+            key = ((KeyStore.SecretKeyEntry) keyStore.getEntry(KEY_ALIAS, null)).getSecretKey();
+            keystoreKey = key;
+            return key;
         } catch (Exception e) {
             e.printStackTrace();
             return null;
@@ -67,6 +89,14 @@ public class CryptoManager {
         }
     }
 
+    /**
+     * Drops the resolved keystore key and all cached ciphers / derived keys.
+     */
+    public static void clearCaches() {
+        keystoreKey = null;
+        CryptoCache.invalidate();
+    }
+
     // --- ENCRYPTION / DECRYPTION ---
 
     /**
@@ -80,15 +110,7 @@ public class CryptoManager {
             byte[] iv = cipher.getIV();
             outputStream.write(iv); // Save IV at the start of file
 
-            byte[] buffer = new byte[1024 * 4]; // 4KB buffer
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                byte[] output = cipher.update(buffer, 0, bytesRead);
-                if (output != null) outputStream.write(output);
-            }
-            byte[] finalBytes = cipher.doFinal();
-            if (finalBytes != null) outputStream.write(finalBytes);
-
+            pump(cipher, inputStream, outputStream);
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -110,19 +132,272 @@ public class CryptoManager {
             GCMParameterSpec spec = new GCMParameterSpec(128, iv);
             cipher.init(Cipher.DECRYPT_MODE, getSecretKey(), spec);
 
-            byte[] buffer = new byte[1024 * 4];
+            pump(cipher, inputStream, outputStream);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // --- VAULT FILES (MASTER KEY) ---
+
+    /**
+     * Encrypts a vault file with the master key.
+     * Always writes the segmented v1 format (see SegmentedCrypto).
+     */
+    public static boolean encrypt(SecretKey key, InputStream inputStream, OutputStream outputStream) {
+        try {
+            if (key == null) return false;
+            SegmentedCrypto.encrypt(key, inputStream, outputStream);
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            closeQuietly(inputStream);
+            closeQuietly(outputStream);
+        }
+    }
+
+    /**
+     * Encrypts straight into a vault file, spreading segments over all cores.
+     * Same v1 output as encrypt(); use this whenever the destination is a local file.
+     */
+    public static boolean encryptFile(SecretKey key, InputStream inputStream, File outputFile) {
+        RandomAccessFile raf = null;
+        try {
+            if (key == null) return false;
+            raf = new RandomAccessFile(outputFile, "rw");
+            raf.setLength(0);
+            ParallelSegmentEncryptor.getDefault().encrypt(key, inputStream, raf.getChannel());
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            closeQuietly(inputStream);
+            closeQuietly(raf);
+        }
+    }
+
+    /**
+     * Encrypts a local file (staged import, backup) with the FileChannel engine.
+     * Content Uris have no file behind them, so those keep the stream overloads.
+     */
+    public static boolean encryptFile(SecretKey key, File inputFile, File outputFile) {
+        RandomAccessFile src = null;
+        RandomAccessFile dst = null;
+        try {
+            if (key == null) return false;
+            src = new RandomAccessFile(inputFile, "r");
+            dst = new RandomAccessFile(outputFile, "rw");
+            ParallelSegmentEncryptor.getDefault().encrypt(key, src.getChannel(), dst.getChannel());
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            closeQuietly(src);
+            closeQuietly(dst);
+        }
+    }
+
+    /**
+     * Decrypts a vault file with the master key.
+     * Reads both the segmented v1 format and legacy single-IV files.
+     */
+    public static boolean decrypt(SecretKey key, InputStream inputStream, OutputStream outputStream) {
+        try {
+            if (key == null) return false;
+
+            // Peek the header: v1 files start with the magic, legacy files with a random IV
+            byte[] head = new byte[SegmentedCrypto.HEADER_SIZE];
+            int headLen = SegmentedCrypto.readFully(inputStream, head, 0, head.length);
+
+            SegmentedCrypto.Header header = SegmentedCrypto.Header.parse(head);
+            if (header != null) {
+                SegmentedCrypto.decrypt(key, header, inputStream, outputStream);
+            } else {
+                decryptLegacy(key, Arrays.copyOf(head, headLen), inputStream, outputStream);
+            }
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            closeQuietly(inputStream);
+            closeQuietly(outputStream);
+        }
+    }
+
+    /**
+     * Decrypts a vault file into a local file, spreading v1 segments over all cores.
+     * Legacy single-IV files fall back to the sequential decrypt(). A partial output
+     * is deleted on failure.
+     */
+    public static boolean decryptFile(SecretKey key, File inputFile, File outputFile) {
+        if (key == null) return false;
+        boolean success = false;
+        RandomAccessFile src = null;
+        RandomAccessFile dst = null;
+        FileInputStream in = null;
+        FileOutputStream out = null;
+        try {
+            src = new RandomAccessFile(inputFile, "r");
+            dst = new RandomAccessFile(outputFile, "rw");
+            success = ParallelSegmentDecryptor.getDefault().decrypt(key, src.getChannel(), dst.getChannel());
+            if (!success) {
+                // Not v1: stream it on this thread
+                closeQuietly(dst);
+                dst = null;
+                in = new FileInputStream(inputFile);
+                out = new FileOutputStream(outputFile);
+                success = decrypt(key, in, out);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            closeQuietly(src);
+            closeQuietly(dst);
+            closeQuietly(in);
+            closeQuietly(out);
+            if (!success) outputFile.delete();
+        }
+        return success;
+    }
+
+    /**
+     * Legacy format: 12-byte IV followed by one AES-GCM stream over the whole file.
+     * 'prefix' holds bytes already consumed from the stream while probing the header.
+     */
+    static void decryptLegacy(SecretKey key, byte[] prefix, InputStream inputStream, OutputStream outputStream) throws Exception {
+        if (prefix.length < 12) throw new EOFException("File too short for IV");
+        byte[] iv = Arrays.copyOfRange(prefix, 0, 12);
+
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, iv));
+
+        byte[] out = BufferPool.acquire(BufferPool.SMALL);
+        try {
+            update(cipher, prefix, 12, prefix.length - 12, out, outputStream);
+        } finally {
+            BufferPool.release(out);
+        }
+        pump(cipher, inputStream, outputStream);
+    }
+
+    /**
+     * decryptLegacy() for a whole file without holding it in memory. A GCM decrypt buffers
+     * its input until doFinal(), so instead the body is decrypted with AES/CTR (counter
+     * IV || 2, the keystream GCM uses) and the plaintext is re-encrypted with AES/GCM under
+     * the same key and IV to recompute the tag. Throws AEADBadTagException if it does not
+     * match the stored one; the output written so far must then be discarded.
+     */
+    static void decryptLegacy(SecretKey key, File file, OutputStream outputStream) throws Exception {
+        try (FileInputStream in = new FileInputStream(file)) {
+            long bodyLength = file.length() - LEGACY_IV_SIZE - LEGACY_TAG_SIZE;
+            if (bodyLength < 0) throw new EOFException("File too short for IV and tag");
+            byte[] iv = new byte[LEGACY_IV_SIZE];
+            SegmentedCrypto.readFully(in, iv, 0, iv.length);
+
+            byte[] counter = Arrays.copyOf(iv, 16);
+            counter[15] = 2;
+            Cipher ctr = Cipher.getInstance("AES/CTR/NoPadding");
+            ctr.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(counter));
+            Cipher gcm = Cipher.getInstance(TRANSFORMATION);
+            gcm.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+
+            byte[] buf = BufferPool.acquire(BufferPool.COPY);
+            byte[] plain = BufferPool.acquire(BufferPool.COPY);
+            byte[] discard = BufferPool.acquire(BufferPool.COPY + 32);
+            try {
+                long remaining = bodyLength;
+                while (remaining > 0) {
+                    int n = in.read(buf, 0, (int) Math.min(BufferPool.COPY, remaining));
+                    if (n == -1) throw new EOFException("Truncated vault file");
+                    int p = ctr.update(buf, 0, n, plain, 0);
+                    outputStream.write(plain, 0, p);
+                    gcm.update(plain, 0, p, discard, 0);
+                    remaining -= n;
+                }
+                byte[] tail = ctr.doFinal();
+                if (tail.length > 0) {
+                    outputStream.write(tail);
+                    gcm.update(tail);
+                }
+
+                byte[] expected = new byte[LEGACY_TAG_SIZE];
+                if (SegmentedCrypto.readFully(in, expected, 0, expected.length) != expected.length) {
+                    throw new EOFException("Truncated vault file");
+                }
+                byte[] encrypted = gcm.doFinal();
+                byte[] tag = Arrays.copyOfRange(encrypted, encrypted.length - LEGACY_TAG_SIZE, encrypted.length);
+                if (!MessageDigest.isEqual(tag, expected)) throw new AEADBadTagException("Legacy tag mismatch");
+            } finally {
+                BufferPool.release(buf);
+                BufferPool.release(plain);
+                BufferPool.release(discard);
+            }
+        }
+    }
+
+    // --- BUFFERED CIPHER LOOP ---
+
+    /**
+     * Streams input through the cipher with pooled buffers and finishes it.
+     * No per-chunk allocations: update() writes into a reused output buffer.
+     */
+    static void pump(Cipher cipher, InputStream inputStream, OutputStream outputStream) throws Exception {
+        byte[] in = BufferPool.acquire(BufferPool.COPY);
+        // Room for one input chunk plus a block the cipher may be holding back
+        byte[] out = BufferPool.acquire(BufferPool.COPY + 32);
+        try {
             int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                byte[] output = cipher.update(buffer, 0, bytesRead);
-                if (output != null) outputStream.write(output);
+            while ((bytesRead = inputStream.read(in, 0, BufferPool.COPY)) != -1) {
+                update(cipher, in, 0, bytesRead, out, outputStream);
             }
+            // GCM decrypt releases everything here (it buffers until the tag is checked)
             byte[] finalBytes = cipher.doFinal();
             if (finalBytes != null) outputStream.write(finalBytes);
+        } finally {
+            BufferPool.release(in);
+            BufferPool.release(out);
+        }
+    }
 
-            return true;
+    private static void update(Cipher cipher, byte[] in, int inOff, int len, byte[] out, OutputStream outputStream) throws Exception {
+        if (len <= 0) return;
+        int n;
+        try {
+            n = cipher.update(in, inOff, len, out, 0);
+        } catch (ShortBufferException e) {
+            // Cipher state is unchanged on ShortBufferException, so retry with an allocated array
+            byte[] output = cipher.update(in, inOff, len);
+            if (output != null) outputStream.write(output);
+            return;
+        }
+        if (n > 0) outputStream.write(out, 0, n);
+    }
+
+    /**
+     * Returns true if the file is already in the segmented v1 format.
+     */
+    public static boolean isSegmented(File file) {
+        try (FileInputStream fis = new FileInputStream(file)) {
+            byte[] head = new byte[SegmentedCrypto.HEADER_SIZE];
+            SegmentedCrypto.readFully(fis, head, 0, head.length);
+            return SegmentedCrypto.Header.parse(head) != null;
         } catch (Exception e) {
-            e.printStackTrace();
             return false;
         }
     }
-}
\ No newline at end of file
+
+    private static void closeQuietly(Closeable c) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (Exception ignored) {
+        }
+    }
+}
@@ -5,17 +5,19 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
+import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.List;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
 
     private static final String DB_NAME = "SecureVault.db";
-    private static final int DB_VERSION = 1;
+    private static final int DB_VERSION = DatabaseSchema.VERSION;
 
     // TABLE FILES
-    public static final String TABLE_FILES = "files";
+    public static final String TABLE_FILES = DatabaseSchema.TABLE_FILES;
     public static final String COL_ID = "id";
     public static final String COL_TYPE = "type"; // PHOTO, VIDEO, DOC
     public static final String COL_SYSTEM_NAME = "system_name"; // Encrypted filename (UUID)
@@ -24,35 +26,92 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COL_MIME_TYPE = "mime_type";
     public static final String COL_TIMESTAMP = "timestamp";
     public static final String COL_IS_DELETED = "is_deleted"; // For Trash bin
+    public static final String COL_CONTENT_SIZE = "content_size"; // Plaintext bytes
+    public static final String COL_CONTENT_HASH = "content_hash"; // Keyed hash, see ImportEngine
 
-    public DatabaseHelper(Context context) {
+    // TABLE IMPORT JOURNAL (ImportEngine)
+    public static final String TABLE_IMPORT_JOURNAL = DatabaseSchema.TABLE_IMPORT_JOURNAL;
+    public static final String COL_SOURCE_URI = "source_uri";
+    public static final String COL_STATE = "state";
+    public static final String COL_CREATED = "created";
+
+    // Journal states, in order
+    public static final int JOURNAL_PENDING = 0;        // Queued, nothing written yet
+    public static final int JOURNAL_ENCRYPTING = 1;     // Writing <system_name>.part
+    public static final int JOURNAL_COMMITTED = 2;      // Renamed + files row inserted
+    public static final int JOURNAL_SOURCE_DELETED = 3; // Original handled; row can go
+
+    private static final int CACHE_SIZE_KB = 8 * 1024; // Writer's page cache (default is ~2 MB)
+
+    // Ids per bulk UPDATE; stays under SQLite's 999 bound-parameter limit on older devices
+    private static final int BULK_CHUNK = 500;
+
+    private static DatabaseHelper instance;
+
+    /**
+     * The process-wide helper. One SQLiteDatabase means one connection pool and one set
+     * of page caches for every screen and worker, instead of a fresh open per caller.
+     */
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) instance = new DatabaseHelper(context.getApplicationContext());
+        return instance;
+    }
+
+    private DatabaseHelper(Context context) {
         super(context, DB_NAME, null, DB_VERSION);
+        // WAL: readers see the last commit while a writer (e.g. an import) is busy, and
+        // SQLiteDatabase serves reads from a pool of extra connections next to the writer
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
-    public void onCreate(SQLiteDatabase db) {
-        db.execSQL("CREATE TABLE " + TABLE_FILES + " (" +
-                COL_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                COL_TYPE + " TEXT, " +
-                COL_SYSTEM_NAME + " TEXT UNIQUE, " +
-                COL_DISPLAY_NAME + " TEXT, " +
-                COL_ORIGINAL_PATH + " TEXT, " +
-                COL_MIME_TYPE + " TEXT, " +
-                COL_TIMESTAMP + " INTEGER, " +
-                COL_IS_DELETED + " INTEGER DEFAULT 0)");
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // Primary (write) connection. NORMAL is crash-safe with WAL: a power cut can only
+        // lose the last commits, never corrupt; FULL would fsync on every commit.
+        db.execSQL("PRAGMA synchronous=NORMAL");
+        db.execSQL("PRAGMA cache_size=-" + CACHE_SIZE_KB);
+    }
+
+    /**
+     * Copies the WAL back into SecureVault.db and truncates it, so the .db file alone
+     * holds every commit. Call before copying the file (backup).
+     */
+    public void checkpoint() {
+        try (Cursor cursor = getWritableDatabase().rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null)) {
+            cursor.moveToFirst();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
-        // Add Notes/Passwords tables here later if needed, but start clean
+    // Schema lives in DatabaseSchema: version 1 plus in-place migrations
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(DatabaseSchema.CREATE_FILES_V1);
+        onUpgrade(db, 1, DB_VERSION);
     }
 
+    /** Runs each migration step in order; SQLiteOpenHelper wraps it all in one transaction. */
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_FILES);
-        onCreate(db);
+        for (int version = oldVersion; version < newVersion; version++) {
+            for (String statement : DatabaseSchema.migration(version)) db.execSQL(statement);
+        }
     }
 
     // --- CRUD OPERATIONS ---
 
+    public long addFile(String type, String sysName, String dispName, String origPath) {
+        return addFile(type, sysName, dispName, origPath, URLConnection.guessContentTypeFromName(dispName));
+    }
+
     public long addFile(String type, String sysName, String dispName, String origPath, String mime) {
+        return addFile(type, sysName, dispName, origPath, mime, System.currentTimeMillis());
+    }
+
+    public long addFile(String type, String sysName, String dispName, String origPath, String mime, long timestamp) {
         SQLiteDatabase db = this.getWritableDatabase();
         ContentValues values = new ContentValues();
         values.put(COL_TYPE, type);
@@ -60,7 +119,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         values.put(COL_DISPLAY_NAME, dispName);
         values.put(COL_ORIGINAL_PATH, origPath);
         values.put(COL_MIME_TYPE, mime);
-        values.put(COL_TIMESTAMP, System.currentTimeMillis());
+        values.put(COL_TIMESTAMP, timestamp);
         return db.insert(TABLE_FILES, null, values);
     }
 
@@ -71,6 +130,195 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 new String[]{type}, null, null, COL_TIMESTAMP + " DESC");
     }
 
+    public Cursor getActiveFiles(String type) {
+        return getFiles(type);
+    }
+
+    public Cursor getDeletedFiles() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return db.query(TABLE_FILES, null, COL_IS_DELETED + "=1",
+                null, null, null, COL_TIMESTAMP + " DESC");
+    }
+
+    /** The listing columns of one row, found through the system_name UNIQUE index. */
+    public Cursor getFileMetadata(String systemName) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return db.query(TABLE_FILES,
+                new String[]{COL_ID, COL_TYPE, COL_SYSTEM_NAME, COL_DISPLAY_NAME, COL_MIME_TYPE, COL_TIMESTAMP, COL_IS_DELETED},
+                COL_SYSTEM_NAME + "=?", new String[]{systemName}, null, null, null);
+    }
+
+    /** The listing columns of one row, by primary key. */
+    public Cursor getFileMetadata(int id) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return db.query(TABLE_FILES,
+                new String[]{COL_ID, COL_TYPE, COL_SYSTEM_NAME, COL_DISPLAY_NAME, COL_MIME_TYPE, COL_TIMESTAMP, COL_IS_DELETED},
+                COL_ID + "=?", new String[]{String.valueOf(id)}, null, null, null);
+    }
+
+    /**
+     * One page of a listing, newest first, with the listing columns. A null 'type' lists
+     * every type (the Trash).
+     *
+     * Keyset pagination: the page starts right after the row (afterTimestamp, afterId),
+     * i.e. the last row of the previous page; pass afterId = -1 for the first page.
+     * Unlike OFFSET, SQLite seeks straight to the key, so page 1000 costs what page 1 does,
+     * and rows inserted meanwhile don't shift later pages.
+     */
+    public Cursor getFilesPage(String type, boolean deleted, long afterTimestamp, int afterId, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        String isDeleted = deleted ? "1" : "0";
+        if (type == null) {
+            // Trash index: seeks to the key, the columns come from the table
+            if (afterId < 0) return db.rawQuery(DatabaseSchema.ANY_TYPE_FIRST_PAGE, new String[]{isDeleted, String.valueOf(limit)});
+            return db.rawQuery(DatabaseSchema.ANY_TYPE_NEXT_PAGE, new String[]{isDeleted,
+                    String.valueOf(afterTimestamp), String.valueOf(afterId), String.valueOf(limit)});
+        }
+        // Both are answered from the covering listing index, no table or sort
+        if (afterId < 0) {
+            return db.rawQuery(DatabaseSchema.FIRST_PAGE, new String[]{type, isDeleted, String.valueOf(limit)});
+        }
+        return db.rawQuery(DatabaseSchema.NEXT_PAGE, new String[]{type, isDeleted,
+                String.valueOf(afterTimestamp), String.valueOf(afterId), String.valueOf(limit)});
+    }
+
+    /**
+     * The rows just before (newer than) (beforeTimestamp, beforeId) in a listing, nearest
+     * first, i.e. oldest first. Lets a viewer opened mid-listing page towards the top.
+     */
+    public Cursor getFilesPageBefore(String type, boolean deleted, long beforeTimestamp, int beforeId, int limit) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return db.rawQuery(DatabaseSchema.PREV_PAGE, new String[]{type, deleted ? "1" : "0",
+                String.valueOf(beforeTimestamp), String.valueOf(beforeId), String.valueOf(limit)});
+    }
+
+    /** (id, system_name) of every row of one type, trashed or not. For VaultReconciler. */
+    public Cursor getFileNames(String type) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return db.query(TABLE_FILES, new String[]{COL_ID, COL_SYSTEM_NAME},
+                COL_TYPE + "=?", new String[]{type}, null, null, null);
+    }
+
+    /** Deletes the rows in one transaction, reusing one compiled statement. */
+    public void deleteFileRecords(List<Integer> ids) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement delete = db.compileStatement(
+                "DELETE FROM " + TABLE_FILES + " WHERE " + COL_ID + "=?")) {
+            for (int id : ids) {
+                delete.bindLong(1, id);
+                delete.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Inserts rows for vault files that have none, in one transaction.
+     * Returns the new row ids, -1 where an insert failed.
+     */
+    public long[] addRecoveredFiles(String type, List<String> sysNames, List<String> dispNames, List<Long> timestamps) {
+        long[] ids = new long[sysNames.size()];
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                ContentValues values = new ContentValues();
+                values.put(COL_TYPE, type);
+                values.put(COL_SYSTEM_NAME, sysNames.get(i));
+                values.put(COL_DISPLAY_NAME, dispNames.get(i));
+                values.put(COL_ORIGINAL_PATH, "Recovered");
+                values.put(COL_TIMESTAMP, timestamps.get(i));
+                ids[i] = db.insert(TABLE_FILES, null, values);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return ids;
+    }
+
+    /** Display name for a system name (UUID), or null if there is no such row. */
+    public String getDisplayName(String systemName) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE_FILES, new String[]{COL_DISPLAY_NAME},
+                COL_SYSTEM_NAME + "=?", new String[]{systemName}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        }
+    }
+
+    /** Row id for a system name (UUID), or -1. */
+    public int getFileIdBySystemName(String systemName) {
+        SQLiteDatabase db = this.getReadableDatabase();
+        try (Cursor cursor = db.query(TABLE_FILES, new String[]{COL_ID},
+                COL_SYSTEM_NAME + "=?", new String[]{systemName}, null, null, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : -1;
+        }
+    }
+
+    // Trash: soft delete / restore
+    public void setFileDeleted(int id, boolean deleted) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COL_IS_DELETED, deleted ? 1 : 0);
+        db.update(TABLE_FILES, values, COL_ID + "=?", new String[]{String.valueOf(id)});
+    }
+
+    /** Trashes / restores many files in one transaction, see setDeleted(String, ...). */
+    public void setFilesDeleted(List<Integer> ids, boolean deleted) {
+        setDeleted(TABLE_FILES, ids, deleted);
+    }
+
+    /**
+     * Sets is_deleted on many rows of 'table' (files, notes, passwords) in one transaction:
+     * one fsync instead of one per row. Ids go in chunks of BULK_CHUNK through
+     * "UPDATE ... WHERE id IN (?, ...)"; every full chunk reuses one compiled statement.
+     */
+    public void setDeleted(String table, List<Integer> ids, boolean deleted) {
+        if (ids.isEmpty()) return;
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int full = ids.size() / BULK_CHUNK * BULK_CHUNK;
+            if (full > 0) {
+                try (SQLiteStatement update = compileSetDeleted(db, table, BULK_CHUNK)) {
+                    for (int start = 0; start < full; start += BULK_CHUNK) {
+                        bindSetDeleted(update, deleted, ids, start, BULK_CHUNK);
+                        update.executeUpdateDelete();
+                    }
+                }
+            }
+            if (full < ids.size()) {
+                try (SQLiteStatement update = compileSetDeleted(db, table, ids.size() - full)) {
+                    bindSetDeleted(update, deleted, ids, full, ids.size() - full);
+                    update.executeUpdateDelete();
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static SQLiteStatement compileSetDeleted(SQLiteDatabase db, String table, int count) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table)
+                .append(" SET ").append(COL_IS_DELETED).append("=? WHERE ").append(COL_ID).append(" IN (?");
+        for (int i = 1; i < count; i++) sql.append(",?");
+        return db.compileStatement(sql.append(')').toString());
+    }
+
+    private static void bindSetDeleted(SQLiteStatement update, boolean deleted, List<Integer> ids, int start, int count) {
+        update.bindLong(1, deleted ? 1 : 0);
+        for (int i = 0; i < count; i++) update.bindLong(i + 2, ids.get(start + i));
+    }
+
+    public void deleteFileRecordPermanently(int id) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.delete(TABLE_FILES, COL_ID + "=?", new String[]{String.valueOf(id)});
+    }
+
     public String getOriginalName(String systemName) {
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.query(TABLE_FILES, new String[]{COL_DISPLAY_NAME},
@@ -88,4 +336,136 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         SQLiteDatabase db = this.getWritableDatabase();
         db.delete(TABLE_FILES, COL_SYSTEM_NAME + "=?", new String[]{systemName});
     }
+
+    // --- CONTENT HASH (dedupe) ---
+
+    /** Whether a file of this type and size with a content hash exists. Index only. */
+    public boolean hasContentOfSize(String type, long size) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(DatabaseSchema.HAS_CONTENT_SIZE,
+                new String[]{type, String.valueOf(size)})) {
+            return cursor.moveToFirst();
+        }
+    }
+
+    /** The row holding this content (listing columns), if any. */
+    public Cursor findFileByContent(String type, long size, String hash) {
+        return getReadableDatabase().rawQuery(DatabaseSchema.FIND_CONTENT,
+                new String[]{type, String.valueOf(size), hash});
+    }
+
+    // --- IMPORT JOURNAL ---
+
+    /**
+     * One PENDING row per source Uri, in one transaction.
+     * Returns the new row ids, -1 where an insert failed.
+     */
+    public long[] addJournalEntries(String type, List<String> sourceUris, long created) {
+        long[] ids = new long[sourceUris.size()];
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement insert = db.compileStatement("INSERT INTO " + TABLE_IMPORT_JOURNAL +
+                " (" + COL_TYPE + ", " + COL_SOURCE_URI + ", " + COL_STATE + ", " + COL_CREATED + ") VALUES (?, ?, " +
+                JOURNAL_PENDING + ", ?)")) {
+            for (int i = 0; i < ids.length; i++) {
+                insert.bindString(1, type);
+                insert.bindString(2, sourceUris.get(i));
+                insert.bindLong(3, created);
+                ids[i] = insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return ids;
+    }
+
+    /** Records the vault name and source details before the first byte is written. */
+    public void setJournalEncrypting(long id, String sysName, String dispName, String origPath) {
+        ContentValues values = new ContentValues();
+        values.put(COL_SYSTEM_NAME, sysName);
+        values.put(COL_DISPLAY_NAME, dispName);
+        values.put(COL_ORIGINAL_PATH, origPath);
+        values.put(COL_STATE, JOURNAL_ENCRYPTING);
+        getWritableDatabase().update(TABLE_IMPORT_JOURNAL, values, COL_ID + "=?", new String[]{String.valueOf(id)});
+    }
+
+    public void setJournalState(long id, int state) {
+        ContentValues values = new ContentValues();
+        values.put(COL_STATE, state);
+        getWritableDatabase().update(TABLE_IMPORT_JOURNAL, values, COL_ID + "=?", new String[]{String.valueOf(id)});
+    }
+
+    /**
+     * Inserts the files row and marks the journal row COMMITTED in one transaction, so
+     * after a crash either both happened or neither. 'hash' may be null (content unknown).
+     * Returns the file row id, or -1.
+     */
+    public long commitImport(long journalId, String type, String sysName, String dispName, String origPath,
+                             String mime, long timestamp, long size, String hash) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            values.put(COL_TYPE, type);
+            values.put(COL_SYSTEM_NAME, sysName);
+            values.put(COL_DISPLAY_NAME, dispName);
+            values.put(COL_ORIGINAL_PATH, origPath);
+            values.put(COL_MIME_TYPE, mime);
+            values.put(COL_TIMESTAMP, timestamp);
+            if (hash != null) {
+                values.put(COL_CONTENT_SIZE, size);
+                values.put(COL_CONTENT_HASH, hash);
+            }
+            long id = db.insert(TABLE_FILES, null, values);
+            if (id == -1) return -1;
+            setJournalState(journalId, JOURNAL_COMMITTED);
+            db.setTransactionSuccessful();
+            return id;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Completes an import as a link to the existing file 'fileId': restores that file
+     * from Trash if 'restore' and marks the journal row COMMITTED, in one transaction.
+     */
+    public void linkImport(long journalId, int fileId, boolean restore) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (restore) setFileDeleted(fileId, false);
+            setJournalState(journalId, JOURNAL_COMMITTED);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Every journal row, oldest first. */
+    public Cursor getJournal() {
+        SQLiteDatabase db = this.getReadableDatabase();
+        return db.query(TABLE_IMPORT_JOURNAL, null, null, null, null, null, COL_ID);
+    }
+
+    public void deleteJournalEntries(List<Long> ids) {
+        SQLiteDatabase db = this.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement delete = db.compileStatement(
+                "DELETE FROM " + TABLE_IMPORT_JOURNAL + " WHERE " + COL_ID + "=?")) {
+            for (long id : ids) {
+                delete.bindLong(1, id);
+                delete.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Drops the rows of finished imports. */
+    public void pruneJournal() {
+        getWritableDatabase().delete(TABLE_IMPORT_JOURNAL, COL_STATE + "=?",
+                new String[]{String.valueOf(JOURNAL_SOURCE_DELETED)});
+    }
 }
\ No newline at end of file
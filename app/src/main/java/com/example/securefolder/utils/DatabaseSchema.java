@@ -0,0 +1,117 @@
+package com.example.securefolder.utils;
+
+/**
+ * Schema and migrations of SecureVault.db, as plain SQL so the JVM tests can run
+ * exactly what the app runs (see DatabaseSchemaTest).
+ *
+ * Version 1 is the original files table. Each later version is a list of statements
+ * in MIGRATIONS that evolves the previous version in place; rows are never dropped.
+ * A fresh install creates version 1 and runs every migration, so new and upgraded
+ * databases always end up with the same schema.
+ *
+ * To change the schema: append a step to MIGRATIONS. VERSION follows from its length.
+ */
+final class DatabaseSchema {
+
+    static final String TABLE_FILES = "files";
+
+    static final String CREATE_FILES_V1 = "CREATE TABLE " + TABLE_FILES + " (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            "type TEXT, " +
+            "system_name TEXT UNIQUE, " + // UNIQUE gives the system-name lookups their index
+            "display_name TEXT, " +
+            "original_path TEXT, " +
+            "mime_type TEXT, " +
+            "timestamp INTEGER, " +
+            "is_deleted INTEGER DEFAULT 0)";
+
+    static final String TABLE_IMPORT_JOURNAL = "import_journal";
+
+    static final String INDEX_LISTING = "idx_files_listing";
+    static final String INDEX_TRASH = "idx_files_trash";
+    static final String INDEX_CONTENT = "idx_files_content";
+
+    /** MIGRATIONS[i] upgrades version i + 1 to version i + 2. Append only. */
+    private static final String[][] MIGRATIONS = {
+            // 2: Listing / trash indexes
+            {
+                    // Equality columns, then the sort key (id breaks timestamp ties), then
+                    // everything the grids read: pages are answered from the index alone
+                    "CREATE INDEX IF NOT EXISTS " + INDEX_LISTING + " ON " + TABLE_FILES +
+                            " (type, is_deleted, timestamp, id, system_name, display_name, mime_type)",
+                    "CREATE INDEX IF NOT EXISTS " + INDEX_TRASH + " ON " + TABLE_FILES +
+                            " (is_deleted, timestamp, id)",
+            },
+            // 3: Import journal, one row per queued import until it is done (see ImportEngine)
+            {
+                    "CREATE TABLE IF NOT EXISTS " + TABLE_IMPORT_JOURNAL + " (" +
+                            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                            "type TEXT NOT NULL, " +
+                            "source_uri TEXT NOT NULL, " +
+                            "system_name TEXT, " + // Set once encryption starts
+                            "display_name TEXT, " +
+                            "original_path TEXT, " +
+                            "state INTEGER NOT NULL DEFAULT 0, " +
+                            "created INTEGER)",
+            },
+            // 4: Keyed content hash of imports, for dedupe (see ImportEngine). NULL on older rows
+            {
+                    "ALTER TABLE " + TABLE_FILES + " ADD COLUMN content_size INTEGER",
+                    "ALTER TABLE " + TABLE_FILES + " ADD COLUMN content_hash TEXT",
+                    // Size first: "is there any file this big?" is answered before hashing
+                    "CREATE INDEX IF NOT EXISTS " + INDEX_CONTENT + " ON " + TABLE_FILES +
+                            " (type, content_size, content_hash)",
+            },
+    };
+
+    static final int VERSION = 1 + MIGRATIONS.length;
+
+    /** Columns of a listing row, in the order of the listing index. */
+    static final String LISTING_COLUMNS = "id, type, system_name, display_name, mime_type, timestamp, is_deleted";
+
+    /**
+     * First page of a listing. Args: type, is_deleted, limit.
+     */
+    static final String FIRST_PAGE = "SELECT " + LISTING_COLUMNS + " FROM " + TABLE_FILES +
+            " WHERE type=? AND is_deleted=? ORDER BY timestamp DESC, id DESC LIMIT ?";
+
+    /**
+     * Page after the row (timestamp, id). Args: type, is_deleted, timestamp, id, limit.
+     * The row-value comparison (SQLite 3.15+, API 26 ships 3.18) lets SQLite seek in the
+     * listing index; the equivalent "ts < ? OR (ts = ? AND id < ?)" scans from the top.
+     */
+    static final String NEXT_PAGE = "SELECT " + LISTING_COLUMNS + " FROM " + TABLE_FILES +
+            " WHERE type=? AND is_deleted=? AND (timestamp, id) < (?, ?) ORDER BY timestamp DESC, id DESC LIMIT ?";
+
+    /**
+     * Page before the row (timestamp, id), i.e. newer rows, nearest first (oldest first).
+     * Args: type, is_deleted, timestamp, id, limit. Same index, walked the other way.
+     */
+    static final String PREV_PAGE = "SELECT " + LISTING_COLUMNS + " FROM " + TABLE_FILES +
+            " WHERE type=? AND is_deleted=? AND (timestamp, id) > (?, ?) ORDER BY timestamp ASC, id ASC LIMIT ?";
+
+    /**
+     * FIRST_PAGE / NEXT_PAGE over every type (the Trash), from the trash index.
+     * Args: is_deleted, limit / is_deleted, timestamp, id, limit.
+     */
+    static final String ANY_TYPE_FIRST_PAGE = "SELECT " + LISTING_COLUMNS + " FROM " + TABLE_FILES +
+            " WHERE is_deleted=? ORDER BY timestamp DESC, id DESC LIMIT ?";
+
+    static final String ANY_TYPE_NEXT_PAGE = "SELECT " + LISTING_COLUMNS + " FROM " + TABLE_FILES +
+            " WHERE is_deleted=? AND (timestamp, id) < (?, ?) ORDER BY timestamp DESC, id DESC LIMIT ?";
+
+    /** Whether a hashed file of this size exists. Args: type, content_size. */
+    static final String HAS_CONTENT_SIZE = "SELECT 1 FROM " + TABLE_FILES +
+            " WHERE type=? AND content_size=? AND content_hash IS NOT NULL LIMIT 1";
+
+    /** The file with this content. Args: type, content_size, content_hash. */
+    static final String FIND_CONTENT = "SELECT " + LISTING_COLUMNS + " FROM " + TABLE_FILES +
+            " WHERE type=? AND content_size=? AND content_hash=? LIMIT 1";
+
+    private DatabaseSchema() {}
+
+    /** Statements that upgrade 'fromVersion' to fromVersion + 1. */
+    static String[] migration(int fromVersion) {
+        return MIGRATIONS[fromVersion - 1];
+    }
+}
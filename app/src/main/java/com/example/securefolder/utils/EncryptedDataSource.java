@@ -9,28 +9,31 @@ import androidx.media3.datasource.DataSpec;
 import androidx.media3.datasource.TransferListener;
 import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import javax.crypto.Cipher;
-import javax.crypto.CipherInputStream;
 import javax.crypto.SecretKey;
-import javax.crypto.spec.GCMParameterSpec;
 
 @UnstableApi
 public class EncryptedDataSource extends BaseDataSource {
 
     private final SecretKey mKey;
     private final File mFile;
-    private CipherInputStream mCipherInputStream;
+    private final ReadAheadDecryptor mReadAhead;
     private long mBytesRemaining;
     private boolean mOpened;
     private Uri mUri;
 
     public EncryptedDataSource(File file, SecretKey key, @Nullable TransferListener listener) {
+        this(file, key, listener, ReadAheadDecryptor.DEFAULT_DEPTH);
+    }
+
+    /**
+     * @param readAheadDepth Number of segments decrypted ahead of the player.
+     */
+    public EncryptedDataSource(File file, SecretKey key, @Nullable TransferListener listener, int readAheadDepth) {
         super(true);
         mFile = file;
         mKey = key;
+        mReadAhead = new ReadAheadDecryptor(readAheadDepth);
         if (listener != null) addTransferListener(listener);
     }
 
@@ -39,57 +42,28 @@ public class EncryptedDataSource extends BaseDataSource {
         mUri = dataSpec.uri;
         transferInitializing(dataSpec);
 
-        try {
-            FileInputStream fis = new FileInputStream(mFile);
-            byte[] iv = new byte[12];
-            if (fis.read(iv) != 12) {
-                fis.close();
-                throw new EOFException("File too short for IV");
-            }
-
-            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
-            GCMParameterSpec spec = new GCMParameterSpec(128, iv);
-            cipher.init(Cipher.DECRYPT_MODE, mKey, spec);
-
-            mCipherInputStream = new CipherInputStream(fis, cipher);
-
-            // GCM SEEKING LIMITATION FIX:
-            // If the player asks to seek far ahead, we must skip.
-            // WARNING: This is slow for large files but necessary.
-            if (dataSpec.position > 0) {
-                forceSkip(mCipherInputStream, dataSpec.position);
-            }
-
-            long contentLength = mFile.length() - 12 - 16;
-            if (dataSpec.length != C.LENGTH_UNSET) {
-                mBytesRemaining = dataSpec.length;
-            } else {
-                mBytesRemaining = contentLength - dataSpec.position;
-            }
-
-            mOpened = true;
-            transferStarted(dataSpec);
-            return mBytesRemaining;
-
-        } catch (Exception e) {
-            throw new IOException(e);
+        // SEEKING: Random access straight to the segment / counter block for dataSpec.position.
+        // No bytes before the seek target are decrypted, so seek cost is flat in file size.
+        SeekableVaultFile vaultFile = SeekableVaultFile.open(mFile, mKey);
+
+        long contentLength = vaultFile.length();
+        if (dataSpec.position > contentLength) {
+            vaultFile.close();
+            throw new EOFException("Seek past end of file");
         }
-    }
 
-    private void forceSkip(InputStream in, long bytesToSkip) throws IOException {
-        long totalSkipped = 0;
-        // Skip in smaller chunks to avoid OOM or Thread locks
-        byte[] skipBuffer = new byte[8192];
-
-        while (totalSkipped < bytesToSkip) {
-            long remaining = bytesToSkip - totalSkipped;
-            // Use read() instead of skip() because CipherInputStream implementation of skip() is often buggy
-            int read = in.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
-            if (read == -1) {
-                throw new EOFException("End of stream while skipping");
-            }
-            totalSkipped += read;
+        // READ-AHEAD: Segments after the seek target are decrypted on a producer thread
+        mReadAhead.start(vaultFile, dataSpec.position);
+
+        if (dataSpec.length != C.LENGTH_UNSET) {
+            mBytesRemaining = dataSpec.length;
+        } else {
+            mBytesRemaining = contentLength - dataSpec.position;
         }
+
+        mOpened = true;
+        transferStarted(dataSpec);
+        return mBytesRemaining;
     }
 
     @Override
@@ -98,7 +72,7 @@ public class EncryptedDataSource extends BaseDataSource {
         if (mBytesRemaining == 0) return C.RESULT_END_OF_INPUT;
 
         int bytesToRead = (int) Math.min(readLength, mBytesRemaining);
-        int bytesRead = mCipherInputStream.read(buffer, offset, bytesToRead);
+        int bytesRead = mReadAhead.read(buffer, offset, bytesToRead);
 
         if (bytesRead == -1) {
             if (mBytesRemaining > 0) throw new EOFException();
@@ -115,13 +89,10 @@ public class EncryptedDataSource extends BaseDataSource {
 
     @Override
     public void close() throws IOException {
-        if (mCipherInputStream != null) {
-            mCipherInputStream.close();
-            mCipherInputStream = null;
-        }
+        mReadAhead.stop();
         if (mOpened) {
             mOpened = false;
             transferEnded();
         }
     }
-}
\ No newline at end of file
+}
@@ -11,14 +11,20 @@ public class EncryptedDataSourceFactory implements DataSource.Factory {
 
     private final File mFile;
     private final SecretKey mKey;
+    private final int mReadAheadDepth;
 
     public EncryptedDataSourceFactory(File file, SecretKey key) {
+        this(file, key, ReadAheadDecryptor.DEFAULT_DEPTH);
+    }
+
+    public EncryptedDataSourceFactory(File file, SecretKey key, int readAheadDepth) {
         mFile = file;
         mKey = key;
+        mReadAheadDepth = readAheadDepth;
     }
 
     @Override
     public DataSource createDataSource() {
-        return new EncryptedDataSource(mFile, mKey, null);
+        return new EncryptedDataSource(mFile, mKey, null, mReadAheadDepth);
     }
 }
\ No newline at end of file
@@ -0,0 +1,758 @@
+package com.example.securefolder.utils;
+
+import android.content.ClipData;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+import android.provider.OpenableColumns;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+/**
+ * The one place files are imported into the vault, for every grid.
+ *
+ * Picks of any size are queued as one job per Uri and run by WORKERS threads; a
+ * 1,000-photo album is 1,000 queue entries, not 1,000 threads. Each job encrypts
+ * into a fresh UUID file (segments in parallel, ParallelSegmentEncryptor), inserts
+ * the row, builds the thumbnail and, for media, deletes the original.
+ *
+ * - Priority: a single pick goes ahead of a queued album, so it shows up at once.
+ *   Equal priorities run in the order they were queued.
+ * - The queue belongs to the process, not the screen: it keeps running when the user
+ *   leaves the grid, and a reopened grid picks its progress up again.
+ * - Progress is counted across all queued jobs (files and bytes read) and posted to
+ *   the listeners on the main thread, at most every PROGRESS_INTERVAL_MS.
+ * - cancelAll() drops the queued jobs and stops the running ones at their next read;
+ *   their partial files are removed.
+ *
+ * Crash safety: every job has a row in the import journal (DatabaseHelper) that moves
+ * PENDING -> ENCRYPTING -> COMMITTED -> SOURCE_DELETED:
+ *  - ENCRYPTING: ciphertext goes to "<uuid>.part", is synced, then renamed to "<uuid>".
+ *  - COMMITTED: the files row and this state are one transaction, so a listed file
+ *    is always complete and a complete file always gets its row.
+ *  - SOURCE_DELETED: the original is handled; the row is pruned when the queue drains.
+ * resume() (run by VaultReconciler after unlock) finishes what the last process left:
+ * PENDING jobs are queued again, a renamed but uncommitted file is committed, a ".part"
+ * is deleted and its job restarted, COMMITTED jobs get their original deleted. Only the
+ * files in flight at the crash are encrypted twice. Locking the vault stops the workers
+ * but keeps the journal, so the queue resumes on the next unlock.
+ *
+ * Dedupe: each file row stores its plaintext size and an HMAC-SHA256 of its content,
+ * under a key derived from the master key (SegmentedCrypto.deriveContentHashKey). The
+ * hash is taken while encrypting, in the same read. When the vault already holds a
+ * file of the same type and size, the source is hashed before encrypting instead, and
+ * a match is linked to the existing row (restored from Trash if needed) with nothing
+ * written. Rows imported before the hash existed have none and are never matched.
+ *
+ * Originals the app may not delete itself (MediaStore items owned by another app)
+ * are collected and handed to a listener once the queue drains, so the UI can ask
+ * for all of them in one system dialog.
+ */
+public class ImportEngine {
+
+    // Segments are already encrypted on every core; a few files in flight keep the
+    // reads, fsyncs, inserts and thumbnail decodes of neighbouring files overlapping
+    private static final int WORKERS = 3;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private static final String PART_SUFFIX = ".part"; // VaultReconciler skips dotted names
+
+    private static final int PRIORITY_INTERACTIVE = 0;
+    private static final int PRIORITY_BULK = 1;
+
+    /** Aggregate state of everything queued since the engine was last idle. */
+    public static class Progress {
+        public final int total;
+        public final int imported;
+        public final int failed;
+        public final int cancelled;
+        public final long bytes;
+        public final long elapsedMs;
+
+        Progress(int total, int imported, int failed, int cancelled, long bytes, long elapsedMs) {
+            this.total = total;
+            this.imported = imported;
+            this.failed = failed;
+            this.cancelled = cancelled;
+            this.bytes = bytes;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public int getFinished() {
+            return imported + failed + cancelled;
+        }
+
+        public boolean isRunning() {
+            return getFinished() < total;
+        }
+
+        public long getBytesPerSecond() {
+            return elapsedMs > 0 ? bytes * 1000 / elapsedMs : 0;
+        }
+    }
+
+    public interface Listener {
+        /** Main thread. Throttled; the last call of a run has isRunning() == false. */
+        void onProgress(Progress progress);
+
+        /** Main thread. Imported originals that need the user's consent to delete. */
+        void onDeleteConsentNeeded(List<Uri> uris);
+    }
+
+    private static ImportEngine instance;
+
+    private final Context appContext;
+    private final DatabaseHelper dbHelper;
+    private final VaultMetadataRepository metadata;
+    private final ThumbnailStore thumbnails;
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService journal; // Journal inserts / deletes off the main thread, in order
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<Long> active = ConcurrentHashMap.newKeySet(); // Journal ids queued or running
+
+    // Counters of the current run; reset when a job is queued on an idle engine
+    private int total, imported, failed, cancelled;
+    private long startedAt;
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong lastPublish = new AtomicLong();
+    private long sequence = 0;
+    private CancelToken token = new CancelToken(); // Shared by the jobs queued since the last cancel
+    private final List<Uri> consentNeeded = new ArrayList<>();
+    private SecretKey hashKey, hashKeyOwner; // Content hash key and the master key it came from
+
+    /** Cancels every job queued under it at once. */
+    private static class CancelToken {
+        volatile boolean cancelled;
+        volatile boolean keepJournal; // Lock: stop now, resume on the next unlock
+    }
+
+    private ImportEngine(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.dbHelper = DatabaseHelper.getInstance(appContext);
+        this.metadata = VaultMetadataRepository.getInstance(appContext);
+        this.thumbnails = ThumbnailStore.getInstance(appContext);
+        // Jobs are Comparable, so the queue hands out the most urgent one first
+        this.executor = new ThreadPoolExecutor(WORKERS, WORKERS, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), new ParallelSegmentEncryptor.WorkerFactory("Import"));
+        this.executor.allowCoreThreadTimeOut(true);
+        this.journal = Executors.newSingleThreadExecutor(new ParallelSegmentEncryptor.WorkerFactory("ImportJournal"));
+        KeyManager.addLockListener(this::onLock);
+    }
+
+    public static synchronized ImportEngine getInstance(Context context) {
+        if (instance == null) instance = new ImportEngine(context);
+        return instance;
+    }
+
+    /** Uris of a picker result: the ClipData of a multiple pick, or the single data Uri. */
+    public static List<Uri> urisFrom(Intent data) {
+        List<Uri> uris = new ArrayList<>();
+        if (data == null) return uris;
+        ClipData clip = data.getClipData();
+        if (clip != null) {
+            for (int i = 0; i < clip.getItemCount(); i++) {
+                Uri uri = clip.getItemAt(i).getUri();
+                if (uri != null) uris.add(uri);
+            }
+        } else if (data.getData() != null) {
+            uris.add(data.getData());
+        }
+        return uris;
+    }
+
+    // --- QUEUE ---
+
+    /**
+     * Queues one job per Uri. 'type' is PHOTO, VIDEO or DOCUMENT.
+     * The journal rows are written on a background thread before the jobs start.
+     */
+    public void enqueue(String type, List<Uri> uris) {
+        if (uris.isEmpty()) return;
+        int priority = uris.size() == 1 ? PRIORITY_INTERACTIVE : PRIORITY_BULK;
+        CancelToken jobToken = startJobs(uris.size());
+        publish(true);
+
+        journal.execute(() -> {
+            int submitted = 0;
+            try {
+                ContentResolver resolver = appContext.getContentResolver();
+                List<String> sources = new ArrayList<>(uris.size());
+                for (Uri uri : uris) {
+                    // SAF grants end with the process; a resumed job needs a persisted one.
+                    // MediaStore picks aren't persistable and don't need it.
+                    try {
+                        resolver.takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                    } catch (SecurityException e) {
+                        // Not persistable
+                    }
+                    sources.add(uri.toString());
+                }
+                long[] ids = dbHelper.addJournalEntries(type, sources, System.currentTimeMillis());
+                for (int i = 0; i < ids.length; i++) {
+                    if (ids[i] == -1) continue; // Insert failed: counted as failed below
+                    submit(new Job(ids[i], type, uris.get(i), DatabaseHelper.JOURNAL_PENDING, priority, jobToken));
+                    submitted++;
+                }
+            } catch (Exception e) {
+                // e.g. SQLiteFullException: the jobs were counted in, so count them out
+                e.printStackTrace();
+            }
+            if (submitted < uris.size()) {
+                count(OUTCOME_FAILED, uris.size() - submitted);
+                publish(true);
+            }
+        });
+    }
+
+    /** Lock: stops the workers (the journal resumes them) and forgets the hash key. */
+    private void onLock() {
+        cancel(true);
+        synchronized (this) {
+            hashKey = null;
+            hashKeyOwner = null;
+        }
+    }
+
+    /** Drops every queued job and stops the running ones; nothing of them is kept. */
+    public void cancelAll() {
+        cancel(false);
+    }
+
+    private void cancel(boolean keepJournal) {
+        List<Runnable> dropped = new ArrayList<>();
+        synchronized (this) {
+            token.keepJournal = keepJournal;
+            token.cancelled = true;
+            token = new CancelToken();
+            executor.getQueue().drainTo(dropped);
+            cancelled += dropped.size();
+        }
+        if (dropped.isEmpty()) return;
+
+        List<Long> ids = new ArrayList<>(dropped.size());
+        for (Runnable r : dropped) {
+            Job job = (Job) r;
+            active.remove(job.journalId);
+            ids.add(job.journalId);
+        }
+        // Queued jobs wrote nothing to the vault yet: rolling back is dropping their rows
+        if (!keepJournal) journal.execute(() -> dbHelper.deleteJournalEntries(ids));
+        publish(true);
+    }
+
+    /**
+     * Picks up the journal of an earlier process (see class comment). Blocking: call on
+     * a background thread with the vault unlocked, before anything lists orphan files.
+     * Returns the number of jobs queued again.
+     */
+    public int resume() {
+        try {
+            // On the journal thread, so it can't race enqueue() between insert and submit
+            return journal.submit(this::resumeJournal).get();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    private int resumeJournal() {
+        File root = appContext.getExternalFilesDir(null);
+        if (root == null) return 0;
+        dbHelper.pruneJournal();
+
+        List<Job> jobs = new ArrayList<>();
+        List<Long> dead = new ArrayList<>();
+        try (Cursor c = dbHelper.getJournal()) {
+            int iId = c.getColumnIndexOrThrow(DatabaseHelper.COL_ID);
+            int iType = c.getColumnIndexOrThrow(DatabaseHelper.COL_TYPE);
+            int iUri = c.getColumnIndexOrThrow(DatabaseHelper.COL_SOURCE_URI);
+            int iSys = c.getColumnIndexOrThrow(DatabaseHelper.COL_SYSTEM_NAME);
+            int iName = c.getColumnIndexOrThrow(DatabaseHelper.COL_DISPLAY_NAME);
+            int iPath = c.getColumnIndexOrThrow(DatabaseHelper.COL_ORIGINAL_PATH);
+            int iState = c.getColumnIndexOrThrow(DatabaseHelper.COL_STATE);
+            while (c.moveToNext()) {
+                long id = c.getLong(iId);
+                if (active.contains(id)) continue; // Still queued in this process
+                Job job = new Job(id, c.getString(iType), Uri.parse(c.getString(iUri)), c.getInt(iState),
+                        PRIORITY_BULK, null);
+                job.systemName = c.getString(iSys);
+                job.displayName = c.getString(iName);
+                job.originalPath = c.getString(iPath);
+
+                if (job.state == DatabaseHelper.JOURNAL_ENCRYPTING && !recoverEncrypting(root, job)) {
+                    dead.add(id);
+                    continue;
+                }
+                if (job.state == DatabaseHelper.JOURNAL_COMMITTED && job.systemName != null) {
+                    // Linked to an existing file before its own ciphertext was deleted
+                    File vaultDir = new File(root, vaultDirOf(job.type));
+                    new File(vaultDir, job.systemName + PART_SUFFIX).delete();
+                    // Renamed, then linked by commitImport(): no row of its own, so
+                    // VaultReconciler would adopt it as a recovered file
+                    if (dbHelper.getFileIdBySystemName(job.systemName) == -1) {
+                        new File(vaultDir, job.systemName).delete();
+                    }
+                }
+                jobs.add(job);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        if (!dead.isEmpty()) dbHelper.deleteJournalEntries(dead);
+        if (jobs.isEmpty()) return 0;
+
+        CancelToken jobToken = startJobs(jobs.size());
+        for (Job job : jobs) {
+            job.token = jobToken;
+            submit(job);
+        }
+        publish(true);
+        return jobs.size();
+    }
+
+    /**
+     * A job that died while ENCRYPTING: roll forward if the rename happened (the file is
+     * complete), else delete the ".part" and start over. False if the job is beyond saving.
+     */
+    private boolean recoverEncrypting(File root, Job job) {
+        if (job.systemName == null) return false;
+        File vaultDir = new File(root, vaultDirOf(job.type));
+        new File(vaultDir, job.systemName + PART_SUFFIX).delete();
+
+        if (new File(vaultDir, job.systemName).exists()) {
+            // Committed here, not on a worker: VaultReconciler lists the folder right after
+            // and would otherwise take the file for an orphan
+            // The hash died with the process: this one file stays out of dedupe
+            if (metadata.commitImport(job.journalId, job.type, job.systemName, job.displayName,
+                    job.originalPath, -1, null) == null) {
+                return false;
+            }
+            job.state = DatabaseHelper.JOURNAL_COMMITTED;
+        } else {
+            dbHelper.setJournalState(job.journalId, DatabaseHelper.JOURNAL_PENDING);
+            job.state = DatabaseHelper.JOURNAL_PENDING;
+            job.systemName = null;
+        }
+        return true;
+    }
+
+    /** Counts 'count' new jobs into the run and returns the token they cancel with. */
+    private synchronized CancelToken startJobs(int count) {
+        if (total == imported + failed + cancelled) resetCounters();
+        total += count;
+        return token;
+    }
+
+    private void submit(Job job) {
+        synchronized (this) {
+            job.sequence = sequence++;
+        }
+        active.add(job.journalId);
+        executor.execute(job);
+    }
+
+    public synchronized Progress getProgress() {
+        long elapsed = total > 0 ? SystemClock.elapsedRealtime() - startedAt : 0;
+        return new Progress(total, imported, failed, cancelled, bytes.get(), elapsed);
+    }
+
+    // --- LISTENERS (main thread) ---
+
+    /** Registers and, if a run is in progress, reports it right away. */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        Progress progress = getProgress();
+        if (progress.isRunning()) listener.onProgress(progress);
+        deliverConsent();
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void resetCounters() {
+        total = imported = failed = cancelled = 0;
+        bytes.set(0);
+        startedAt = SystemClock.elapsedRealtime();
+    }
+
+    private void publish(boolean force) {
+        long now = SystemClock.elapsedRealtime();
+        long last = lastPublish.get();
+        if (!force && now - last < PROGRESS_INTERVAL_MS) return;
+        if (!lastPublish.compareAndSet(last, now) && !force) return; // Another worker just did
+        mainHandler.post(() -> {
+            Progress progress = getProgress();
+            for (Listener listener : listeners) listener.onProgress(progress);
+            if (!progress.isRunning()) deliverConsent();
+        });
+    }
+
+    /** Main thread. Hands the collected originals to one listener, once nothing runs. */
+    private void deliverConsent() {
+        if (listeners.isEmpty()) return; // Kept for the next grid that opens
+        List<Uri> uris;
+        synchronized (this) {
+            if (consentNeeded.isEmpty() || total != imported + failed + cancelled) return;
+            uris = new ArrayList<>(consentNeeded);
+            consentNeeded.clear();
+        }
+        listeners.get(0).onDeleteConsentNeeded(uris);
+    }
+
+    private void finish(Job job, int outcome) {
+        active.remove(job.journalId);
+        count(outcome, 1);
+    }
+
+    /** Adds 'n' finished jobs to the run's counters. */
+    private void count(int outcome, int n) {
+        boolean drained;
+        synchronized (this) {
+            if (outcome == OUTCOME_IMPORTED) imported += n;
+            else if (outcome == OUTCOME_FAILED) failed += n;
+            else cancelled += n;
+            drained = total == imported + failed + cancelled;
+        }
+        if (drained) journal.execute(dbHelper::pruneJournal); // One delete for the whole run
+    }
+
+    // --- JOBS ---
+
+    private static final int OUTCOME_IMPORTED = 0;
+    private static final int OUTCOME_FAILED = 1;
+    private static final int OUTCOME_CANCELLED = 2;
+
+    private class Job implements Runnable, Comparable<Job> {
+        final long journalId;
+        final String type;
+        final Uri uri;
+        final int priority;
+        long sequence;
+        CancelToken token;
+
+        // Journal state, advanced as the job runs (resumed jobs start further along)
+        int state;
+        String systemName;
+        String displayName;
+        String originalPath;
+
+        Job(long journalId, String type, Uri uri, int state, int priority, CancelToken token) {
+            this.journalId = journalId;
+            this.type = type;
+            this.uri = uri;
+            this.state = state;
+            this.priority = priority;
+            this.token = token;
+        }
+
+        boolean isCancelled() {
+            return token.cancelled;
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (priority != other.priority) return Integer.compare(priority, other.priority);
+            return Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public void run() {
+            int outcome;
+            try {
+                if (isCancelled()) outcome = OUTCOME_CANCELLED;
+                else outcome = importFile(this);
+            } catch (Exception e) {
+                e.printStackTrace();
+                outcome = isCancelled() ? OUTCOME_CANCELLED : OUTCOME_FAILED;
+            }
+            if (outcome != OUTCOME_IMPORTED) rollBack(this);
+            finish(this, outcome);
+            publish(outcome != OUTCOME_IMPORTED || executor.getQueue().isEmpty());
+        }
+    }
+
+    private int importFile(Job job) throws Exception {
+        File root = appContext.getExternalFilesDir(null);
+        if (root == null) return OUTCOME_FAILED;
+        File vaultDir = new File(root, vaultDirOf(job.type));
+        if (!vaultDir.exists()) vaultDir.mkdirs();
+        ContentResolver resolver = appContext.getContentResolver();
+        boolean media = !"DOCUMENT".equals(job.type);
+
+        if (job.state == DatabaseHelper.JOURNAL_PENDING) {
+            SecretKey key = KeyManager.getMasterKey();
+            SecretKey hashKey = key != null ? contentHashKey(key) : null;
+            if (hashKey == null) return job.isCancelled() ? OUTCOME_CANCELLED : OUTCOME_FAILED;
+
+            // Documents come through SAF, which exposes no file path
+            String originalPath = media ? queryPath(resolver, job.uri) : null;
+            job.originalPath = originalPath != null ? originalPath : media ? "Unknown_Location" : "Unknown_Path";
+            job.displayName = queryName(resolver, job.uri, job.type);
+
+            // Only a file of exactly this size can be a duplicate. If there is one, hash the
+            // source first (a read, no write) and skip encrypting content already stored
+            long size = querySize(resolver, job.uri);
+            String hash = null;
+            if (size >= 0 && dbHelper.hasContentOfSize(job.type, size)) {
+                hash = hashSource(resolver, job, hashKey);
+                if (hash != null && metadata.linkImport(job.journalId, job.type, size, hash) != null) {
+                    job.state = DatabaseHelper.JOURNAL_COMMITTED;
+                }
+            }
+            if (job.isCancelled()) return OUTCOME_CANCELLED;
+
+            if (job.state == DatabaseHelper.JOURNAL_PENDING) {
+                // RANDOM UUID (Invisible Vault)
+                job.systemName = UUID.randomUUID().toString();
+                dbHelper.setJournalEncrypting(job.journalId, job.systemName, job.displayName, job.originalPath);
+                job.state = DatabaseHelper.JOURNAL_ENCRYPTING;
+
+                File part = new File(vaultDir, job.systemName + PART_SUFFIX);
+                InputStream in = resolver.openInputStream(job.uri);
+                if (in == null) return OUTCOME_FAILED;
+                // The content hash rides on the encryption's read of the source, unless the
+                // size check above already took it
+                Mac mac = hash == null ? newContentMac(hashKey) : null;
+                CountingInputStream counted = new CountingInputStream(in, job, mac);
+                boolean success = CryptoManager.encryptFile(key, counted, part);
+                if (!success || job.isCancelled()) return job.isCancelled() ? OUTCOME_CANCELLED : OUTCOME_FAILED;
+                size = counted.count;
+                if (mac != null) hash = SecurityUtils.toHex(mac.doFinal());
+
+                if (metadata.linkImport(job.journalId, job.type, size, hash) != null) {
+                    // Same content as a file imported meanwhile, or the source had no size
+                    job.state = DatabaseHelper.JOURNAL_COMMITTED;
+                    part.delete(); // A crash before this is cleaned up by resume()
+                } else {
+                    // On disk before the rename, and renamed before the row: a crash leaves a
+                    // ".part" (restarted) or a complete file (committed by resume()), never a torn one
+                    sync(part);
+                    if (!part.renameTo(new File(vaultDir, job.systemName))) return OUTCOME_FAILED;
+                    syncDir(vaultDir);
+
+                    VaultMetadataRepository.FileMeta committed = metadata.commitImport(job.journalId, job.type,
+                            job.systemName, job.displayName, job.originalPath, size, hash);
+                    if (committed == null) return OUTCOME_FAILED;
+                    job.state = DatabaseHelper.JOURNAL_COMMITTED;
+                    if (!committed.systemName.equals(job.systemName)) {
+                        // An identical import committed between the check above and here
+                        new File(vaultDir, job.systemName).delete();
+                    } else {
+                        // Preview now, while we're on a background thread anyway (no-op for documents)
+                        thumbnails.generate(job.type, job.systemName, new File(vaultDir, job.systemName));
+                    }
+                }
+            }
+        }
+
+        // COMMITTED: the file is in the vault whatever happens from here on
+        try {
+            if (media) deleteOriginal(resolver, job.uri, job.originalPath);
+            releasePermission(resolver, job.uri);
+            dbHelper.setJournalState(job.journalId, DatabaseHelper.JOURNAL_SOURCE_DELETED);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return OUTCOME_IMPORTED;
+    }
+
+    /**
+     * Undoes a job that didn't commit: its files go, and so does its journal row unless
+     * the vault was locked (then it restarts as PENDING on the next resume()).
+     */
+    private void rollBack(Job job) {
+        if (job.journalId == -1 || job.state == DatabaseHelper.JOURNAL_COMMITTED) return;
+        try {
+            File root = appContext.getExternalFilesDir(null);
+            if (job.systemName != null && root != null) {
+                File vaultDir = new File(root, vaultDirOf(job.type));
+                new File(vaultDir, job.systemName + PART_SUFFIX).delete();
+                new File(vaultDir, job.systemName).delete(); // Renamed, but the row failed
+            }
+            if (job.isCancelled() && job.token.keepJournal) {
+                dbHelper.setJournalState(job.journalId, DatabaseHelper.JOURNAL_PENDING);
+            } else {
+                List<Long> ids = new ArrayList<>();
+                ids.add(job.journalId);
+                dbHelper.deleteJournalEntries(ids);
+                releasePermission(appContext.getContentResolver(), job.uri);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void deleteOriginal(ContentResolver resolver, Uri uri, String originalPath) {
+        if (!originalPath.equals("Unknown_Location")) {
+            File original = new File(originalPath);
+            if (original.exists() && original.delete()) return;
+        }
+        try {
+            if (resolver.delete(uri, null, null) > 0) return;
+        } catch (SecurityException e) {
+            // Owned by another app: needs a MediaStore delete request
+        }
+        synchronized (this) {
+            consentNeeded.add(uri);
+        }
+    }
+
+    /** HMAC key for content hashes, derived once per master key. */
+    private synchronized SecretKey contentHashKey(SecretKey masterKey) {
+        if (masterKey != hashKeyOwner) {
+            try {
+                hashKey = SegmentedCrypto.deriveContentHashKey(masterKey);
+                hashKeyOwner = masterKey;
+            } catch (Exception e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        return hashKey;
+    }
+
+    /** A Mac of its own: CryptoCache's per-thread one is re-initialised by the encryptor. */
+    private static Mac newContentMac(SecretKey hashKey) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(hashKey);
+        return mac;
+    }
+
+    /** Content hash of the source, read once without writing anything. Null if unreadable. */
+    private String hashSource(ContentResolver resolver, Job job, SecretKey hashKey) throws Exception {
+        Mac mac = newContentMac(hashKey);
+        byte[] buffer = BufferPool.acquire(SegmentedCrypto.SEGMENT_SIZE);
+        try (InputStream in = resolver.openInputStream(job.uri)) {
+            if (in == null) return null;
+            CountingInputStream counted = new CountingInputStream(in, job, mac);
+            while (counted.read(buffer, 0, buffer.length) != -1) {
+                // Mac is fed by the stream
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+        return SecurityUtils.toHex(mac.doFinal());
+    }
+
+    private static void releasePermission(ContentResolver resolver, Uri uri) {
+        try {
+            resolver.releasePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            // Never persisted
+        }
+    }
+
+    private static void sync(File file) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.getFD().sync();
+        }
+    }
+
+    /** Makes the rename durable before the row that points at it commits. */
+    private static void syncDir(File dir) {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some filesystems can't sync a directory: best effort
+        }
+    }
+
+    private static String vaultDirOf(String type) {
+        switch (type) {
+            case "PHOTO": return "Vault/Photos";
+            case "VIDEO": return "Vault/Videos";
+            default: return "Vault/Documents";
+        }
+    }
+
+    private static String queryPath(ContentResolver resolver, Uri uri) {
+        try (Cursor cursor = resolver.query(uri, new String[]{MediaStore.MediaColumns.DATA}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) return cursor.getString(0);
+        } catch (Exception e) {
+            // Not a MediaStore Uri
+        }
+        return null;
+    }
+
+    /** Plaintext size from the provider, or -1 if it doesn't say. */
+    private static long querySize(ContentResolver resolver, Uri uri) {
+        try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) return cursor.getLong(0);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    private static String queryName(ContentResolver resolver, Uri uri, String type) {
+        try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && cursor.getString(0) != null) return cursor.getString(0);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        String prefix = "PHOTO".equals(type) ? "Photo_" : "VIDEO".equals(type) ? "Video_" : "Doc_";
+        return prefix + System.currentTimeMillis();
+    }
+
+    /**
+     * Counts bytes for the throughput figure, feeds the content hash (if any) and aborts
+     * the encryption on cancel.
+     */
+    private class CountingInputStream extends FilterInputStream {
+        private final Job job;
+        private final Mac mac;
+        private final byte[] one = new byte[1];
+        long count = 0;
+
+        CountingInputStream(InputStream in, Job job, Mac mac) {
+            super(in);
+            this.job = job;
+            this.mac = mac;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (job.isCancelled()) throw new InterruptedIOException("Import cancelled");
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+                if (mac != null) mac.update(b, off, n);
+                bytes.addAndGet(n);
+                publish(false);
+            }
+            return n;
+        }
+    }
+}
@@ -5,6 +5,8 @@ import android.util.Base64;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.security.spec.KeySpec;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
@@ -20,6 +22,7 @@ public class KeyManager {
 
     // The Active Master Key (Held in RAM only)
     private static SecretKey cachedMasterKey;
+    private static final List<Runnable> lockListeners = new CopyOnWriteArrayList<>();
 
     /**
      * INITIAL SETUP:
@@ -40,7 +43,7 @@ public class KeyManager {
             SecretKey wrapperKey = deriveWrapperKey(password, salt);
 
             // 4. Encrypt the Master Key
-            Cipher cipher = Cipher.getInstance(KEK_ALGORITHM);
+            Cipher cipher = CryptoCache.cipher(KEK_ALGORITHM);
             cipher.init(Cipher.ENCRYPT_MODE, wrapperKey);
             byte[] iv = cipher.getIV();
             byte[] encryptedMasterKey = cipher.doFinal(rawMasterKey);
@@ -76,7 +79,7 @@ public class KeyManager {
 
             SecretKey recoveryWrapper = deriveWrapperKey(recoveryCode, salt);
 
-            Cipher cipher = Cipher.getInstance(KEK_ALGORITHM);
+            Cipher cipher = CryptoCache.cipher(KEK_ALGORITHM);
             cipher.init(Cipher.ENCRYPT_MODE, recoveryWrapper);
             byte[] iv = cipher.getIV();
             byte[] encryptedMasterKey = cipher.doFinal(cachedMasterKey.getEncoded());
@@ -107,7 +110,7 @@ public class KeyManager {
 
             SecretKey wrapperKey = deriveWrapperKey(newPassword, salt);
 
-            Cipher cipher = Cipher.getInstance(KEK_ALGORITHM);
+            Cipher cipher = CryptoCache.cipher(KEK_ALGORITHM);
             cipher.init(Cipher.ENCRYPT_MODE, wrapperKey);
             byte[] iv = cipher.getIV();
             byte[] encryptedMasterKey = cipher.doFinal(cachedMasterKey.getEncoded());
@@ -138,6 +141,16 @@ public class KeyManager {
     // NEW: Important for Auto-Lock
     public static void clearKey() {
         cachedMasterKey = null;
+        CryptoManager.clearCaches();
+        for (Runnable listener : lockListeners) listener.run();
+    }
+
+    /**
+     * Runs on every clearKey(), for caches holding decrypted data (e.g. ThumbnailStore).
+     * Kept as a hook so this class doesn't depend on the UI-side caches.
+     */
+    public static void addLockListener(Runnable listener) {
+        lockListeners.add(listener);
     }
 
     private static boolean unlockWithParams(String saltStr, String blobStr, String ivStr, String secret) {
@@ -150,7 +163,7 @@ public class KeyManager {
 
             SecretKey wrapperKey = deriveWrapperKey(secret, salt);
 
-            Cipher cipher = Cipher.getInstance(KEK_ALGORITHM);
+            Cipher cipher = CryptoCache.cipher(KEK_ALGORITHM);
             GCMParameterSpec spec = new GCMParameterSpec(128, iv);
             cipher.init(Cipher.DECRYPT_MODE, wrapperKey, spec);
 
@@ -165,7 +178,12 @@ public class KeyManager {
     }
 
     private static SecretKey deriveWrapperKey(String password, byte[] salt) throws Exception {
-        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, PBKDF2_ITERATIONS, KEY_LENGTH);
+        return deriveWrapperKey(password, salt, PBKDF2_ITERATIONS);
+    }
+
+    // Iterations exposed for the benchmark module
+    static SecretKey deriveWrapperKey(String password, byte[] salt, int iterations) throws Exception {
+        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, KEY_LENGTH);
         SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
         byte[] keyBytes = factory.generateSecret(spec).getEncoded();
         return new SecretKeySpec(keyBytes, "AES");
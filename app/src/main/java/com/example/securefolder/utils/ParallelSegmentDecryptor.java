@@ -0,0 +1,133 @@
+package com.example.securefolder.utils;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.crypto.SecretKey;
+
+/**
+ * Multi-core reader for the segmented v1 format (export / restore).
+ *
+ * The plaintext length is known from the file size, so the output is pre-sized and
+ * every worker reads, authenticates and writes its own segment with positional
+ * FileChannel I/O. Large inputs are memory-mapped (see ChannelSource) and decrypted
+ * straight into pooled direct buffers. Segments are only written after their GCM tag
+ * has been verified.
+ *
+ * Legacy single-IV files can't be split; decrypt() returns false for them and the
+ * caller falls back to the sequential CryptoManager.decrypt().
+ */
+public class ParallelSegmentDecryptor {
+
+    private static volatile ParallelSegmentDecryptor shared;
+
+    private final ExecutorService pool;
+    private final int workers;
+
+    public ParallelSegmentDecryptor(int workers) {
+        this.workers = Math.max(1, workers);
+        this.pool = Executors.newFixedThreadPool(this.workers, new ParallelSegmentEncryptor.WorkerFactory("VaultDecrypt"));
+    }
+
+    /**
+     * Process-wide instance with one worker per core.
+     */
+    public static ParallelSegmentDecryptor getDefault() {
+        if (shared == null) {
+            synchronized (ParallelSegmentDecryptor.class) {
+                if (shared == null) {
+                    shared = new ParallelSegmentDecryptor(Runtime.getRuntime().availableProcessors());
+                }
+            }
+        }
+        return shared;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Decrypts 'src' into 'dst' (truncated and pre-sized here).
+     * Returns false without writing anything if 'src' is not a v1 file.
+     */
+    public boolean decrypt(SecretKey masterKey, FileChannel src, FileChannel dst) throws Exception {
+        byte[] head = new byte[SegmentedCrypto.HEADER_SIZE];
+        SeekableVaultFile.readAt(src, 0, head, 0, head.length);
+        SegmentedCrypto.Header header = SegmentedCrypto.Header.parse(head);
+        if (header == null) return false;
+
+        long encryptedLength = src.size();
+        long plainLength = header.plaintextLength(encryptedLength);
+        if (plainLength < 0) throw new EOFException("Malformed vault file");
+        long segments = header.segmentCount(encryptedLength);
+        SecretKey fileKey = SegmentedCrypto.deriveFileKey(masterKey, header);
+
+        dst.truncate(0);
+        if (plainLength > 0) {
+            // Pre-size so out-of-order writes never extend the file piecemeal
+            ParallelSegmentEncryptor.writeFully(dst, ByteBuffer.allocate(1), plainLength - 1);
+        }
+
+        ChannelSource source = new ChannelSource(src, encryptedLength, SegmentedCrypto.HEADER_SIZE,
+                header.encryptedSegmentSize());
+        int maxInFlight = workers * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        try {
+            for (long index = 0; index < segments && failure.get() == null; index++) {
+                inFlight.acquire();
+                submit(source, dst, fileKey, header, index, index == segments - 1, encryptedLength, inFlight, failure);
+            }
+        } finally {
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+
+        Exception e = failure.get();
+        if (e != null) throw e;
+        return true;
+    }
+
+    private void submit(ChannelSource source, FileChannel dst, SecretKey fileKey, SegmentedCrypto.Header header,
+                        long index, boolean last, long encryptedLength, Semaphore inFlight,
+                        AtomicReference<Exception> failure) {
+        Runnable task = () -> {
+            int encSegment = header.encryptedSegmentSize();
+            ByteBuffer scratch = source.isMapped() ? null : BufferPool.acquireDirect(encSegment);
+            ByteBuffer plain = BufferPool.acquireDirect(header.segmentSize);
+            try {
+                if (failure.get() != null) return;
+                long offset = header.segmentOffset(index);
+                int expected = (int) Math.min(encSegment, encryptedLength - offset);
+                ByteBuffer sealed = source.range(offset, expected, scratch);
+
+                // Worker thread, so this is the worker's own cached cipher
+                SegmentedCrypto.decryptSegment(SegmentedCrypto.cipher(), fileKey, header, index, last, sealed, plain);
+                plain.flip();
+                ParallelSegmentEncryptor.writeFully(dst, plain, index * (long) header.segmentSize);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                BufferPool.releaseDirect(scratch);
+                BufferPool.releaseDirect(plain);
+                inFlight.release();
+            }
+        };
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /** Stops the worker threads. Only for instances created by the caller. */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
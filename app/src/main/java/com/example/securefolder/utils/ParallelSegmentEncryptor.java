@@ -0,0 +1,228 @@
+package com.example.securefolder.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.crypto.SecretKey;
+
+/**
+ * Multi-core writer for the segmented v1 format.
+ *
+ * The calling thread reads plaintext segment by segment and hands each one to a
+ * worker pool. Every v1 segment is an independent GCM message at a fixed file offset,
+ * so workers encrypt in any order and write straight to their slot with positional
+ * FileChannel writes. Output is byte-for-byte the same layout as SegmentedOutputStream.
+ *
+ * Local files have their own entry point that skips the reader thread entirely.
+ * At most 2 x workers segments are in flight, which bounds memory to a few MiB.
+ */
+public class ParallelSegmentEncryptor {
+
+    private static volatile ParallelSegmentEncryptor shared;
+
+    private final ExecutorService pool;
+    private final int workers;
+
+    public ParallelSegmentEncryptor(int workers) {
+        this.workers = Math.max(1, workers);
+        this.pool = Executors.newFixedThreadPool(this.workers, new WorkerFactory("VaultEncrypt"));
+    }
+
+    /**
+     * Process-wide instance with one worker per core.
+     */
+    public static ParallelSegmentEncryptor getDefault() {
+        if (shared == null) {
+            synchronized (ParallelSegmentEncryptor.class) {
+                if (shared == null) {
+                    shared = new ParallelSegmentEncryptor(Runtime.getRuntime().availableProcessors());
+                }
+            }
+        }
+        return shared;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Encrypts the whole input into 'channel', starting at position 0.
+     * The caller owns both the stream and the channel.
+     */
+    public void encrypt(SecretKey masterKey, InputStream in, FileChannel channel) throws Exception {
+        encrypt(masterKey, in, channel, SegmentedCrypto.SEGMENT_SIZE);
+    }
+
+    void encrypt(SecretKey masterKey, InputStream in, FileChannel channel, int segmentSize) throws Exception {
+        SegmentedCrypto.Header header = SegmentedCrypto.Header.newRandom(segmentSize);
+        SecretKey fileKey = SegmentedCrypto.deriveFileKey(masterKey, header);
+        writeFully(channel, header.encoded, 0, header.encoded.length, 0);
+
+        int maxInFlight = workers * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        byte[] current = BufferPool.acquire(segmentSize);
+        byte[] next = BufferPool.acquire(segmentSize);
+        try {
+            // Look one segment ahead: only EOF tells us which one carries the "last" flag
+            int currentLen = SegmentedCrypto.readFully(in, current, 0, segmentSize);
+            long index = 0;
+            while (failure.get() == null) {
+                int nextLen = (currentLen == segmentSize) ? SegmentedCrypto.readFully(in, next, 0, segmentSize) : 0;
+                boolean last = nextLen == 0;
+
+                inFlight.acquire();
+                submit(channel, fileKey, header, index, last, current, currentLen, inFlight, failure);
+                if (last) {
+                    current = null; // Handed to the worker
+                    break;
+                }
+
+                current = next;
+                currentLen = nextLen;
+                next = BufferPool.acquire(segmentSize);
+                index++;
+            }
+        } finally {
+            // Wait for every submitted segment before touching the channel again
+            inFlight.acquireUninterruptibly(maxInFlight);
+            BufferPool.release(current);
+            BufferPool.release(next);
+        }
+
+        Exception e = failure.get();
+        if (e != null) throw e;
+    }
+
+    /**
+     * Encrypts a local file. The size is known up front, so nothing is read on the
+     * calling thread: each worker pulls its own segment from 'src' (memory-mapped when
+     * large, see ChannelSource) and seals it from direct buffers into 'dst'.
+     */
+    public void encrypt(SecretKey masterKey, FileChannel src, FileChannel dst) throws Exception {
+        int segmentSize = SegmentedCrypto.SEGMENT_SIZE;
+        SegmentedCrypto.Header header = SegmentedCrypto.Header.newRandom(segmentSize);
+        SecretKey fileKey = SegmentedCrypto.deriveFileKey(masterKey, header);
+
+        long length = src.size();
+        // Empty input still gets one (empty) last segment
+        long segments = Math.max(1, (length + segmentSize - 1) / segmentSize);
+        dst.truncate(0);
+        writeFully(dst, ByteBuffer.wrap(header.encoded), 0);
+
+        ChannelSource source = new ChannelSource(src, length, 0, segmentSize);
+        int maxInFlight = workers * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        try {
+            for (long index = 0; index < segments && failure.get() == null; index++) {
+                inFlight.acquire();
+                long offset = index * segmentSize;
+                int len = (int) Math.min(segmentSize, length - offset);
+                submit(source, dst, fileKey, header, index, index == segments - 1, offset, len, inFlight, failure);
+            }
+        } finally {
+            inFlight.acquireUninterruptibly(maxInFlight);
+        }
+
+        Exception e = failure.get();
+        if (e != null) throw e;
+    }
+
+    private void submit(ChannelSource source, FileChannel dst, SecretKey fileKey, SegmentedCrypto.Header header,
+                        long index, boolean last, long offset, int len, Semaphore inFlight,
+                        AtomicReference<Exception> failure) {
+        Runnable task = () -> {
+            ByteBuffer scratch = source.isMapped() ? null : BufferPool.acquireDirect(header.segmentSize);
+            ByteBuffer sealed = BufferPool.acquireDirect(len + SegmentedCrypto.TAG_SIZE);
+            try {
+                if (failure.get() != null) return;
+                ByteBuffer plain = source.range(offset, len, scratch);
+                SegmentedCrypto.encryptSegment(SegmentedCrypto.cipher(), fileKey, header, index, last, plain, sealed);
+                sealed.flip();
+                writeFully(dst, sealed, header.segmentOffset(index));
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                BufferPool.releaseDirect(scratch);
+                BufferPool.releaseDirect(sealed);
+                inFlight.release();
+            }
+        };
+        execute(task, inFlight);
+    }
+
+    private void submit(FileChannel channel, SecretKey fileKey, SegmentedCrypto.Header header, long index,
+                        boolean last, byte[] plain, int len, Semaphore inFlight,
+                        AtomicReference<Exception> failure) {
+        Runnable task = () -> {
+            byte[] sealed = BufferPool.acquire(len + SegmentedCrypto.TAG_SIZE);
+            try {
+                if (failure.get() != null) return;
+                // Worker thread, so this is the worker's own cached cipher
+                int n = SegmentedCrypto.encryptSegment(SegmentedCrypto.cipher(), fileKey, header, index, last,
+                        plain, 0, len, sealed, 0);
+                writeFully(channel, sealed, 0, n, header.segmentOffset(index));
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                BufferPool.release(plain);
+                BufferPool.release(sealed);
+                inFlight.release();
+            }
+        };
+        execute(task, inFlight); // On rejection 'plain' is still owned (and released) by the caller
+    }
+
+    private void execute(Runnable task, Semaphore inFlight) {
+        try {
+            pool.execute(task);
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    static void writeFully(FileChannel channel, byte[] data, int off, int len, long position) throws IOException {
+        writeFully(channel, ByteBuffer.wrap(data, off, len), position);
+    }
+
+    /** Writes the buffer's remaining bytes at 'position'. */
+    static void writeFully(FileChannel channel, ByteBuffer bb, long position) throws IOException {
+        while (bb.hasRemaining()) {
+            position += channel.write(bb, position);
+        }
+    }
+
+    /** Stops the worker threads. Only for instances created by the caller. */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /** Named daemon threads, so an idle pool never keeps the process alive. */
+    static class WorkerFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        WorkerFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.securefolder.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Decodes the photos around the current viewer page ahead of time.
+ *
+ * The viewer calls prefetchAround() on every page change: the current photo and its
+ * RADIUS neighbours on each side are decrypted and decoded (screen-sized, see
+ * SampledBitmapDecoder) into a small LRU, so a swipe finds its bitmap ready.
+ * Work for photos that left the window is cancelled.
+ *
+ * Everything except the decoding itself runs on the main thread.
+ */
+public class PhotoPrefetcher {
+
+    public static final int RADIUS = 1;
+    private static final int WORKERS = 2; // Current page and one neighbour at a time
+
+    /** A decoded photo plus its full-resolution size. */
+    public static class Decoded {
+        public final Bitmap bitmap;
+        public final int fullWidth;
+        public final int fullHeight;
+        public final int sampleSize;
+
+        Decoded(Bitmap bitmap, int sampleSize) {
+            this.bitmap = bitmap;
+            this.sampleSize = sampleSize;
+            this.fullWidth = bitmap.getWidth() * sampleSize;
+            this.fullHeight = bitmap.getHeight() * sampleSize;
+        }
+    }
+
+    public interface Callback {
+        /** Main thread. 'decoded' is null if the file couldn't be decrypted or decoded. */
+        void onDecoded(String systemName, Decoded decoded);
+    }
+
+    private final List<File> files; // The viewer's list; it may grow at both ends (main thread)
+    private final int reqWidth;
+    private final int reqHeight;
+    private final LruCache<String, Decoded> cache;
+    private final ExecutorService pool;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Future<?>> inFlight = new HashMap<>();
+    private final Map<String, List<Callback>> waiting = new HashMap<>();
+
+    public PhotoPrefetcher(List<File> files, int reqWidth, int reqHeight) {
+        this.files = files;
+        this.reqWidth = reqWidth;
+        this.reqHeight = reqHeight;
+        // A sampled bitmap is under 4 screens of pixels; room for the window plus one
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 4,
+                (long) (2 * RADIUS + 2) * 4 * reqWidth * reqHeight * 4);
+        this.cache = new LruCache<String, Decoded>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Decoded value) {
+                return value.bitmap.getAllocationByteCount();
+            }
+        };
+        this.pool = Executors.newFixedThreadPool(WORKERS, new ParallelSegmentEncryptor.WorkerFactory("PhotoPrefetch"));
+    }
+
+    /** Decoded photo at 'index', now if cached, else once its decode finishes. */
+    public void get(int index, Callback callback) {
+        String name = files.get(index).getName();
+        Decoded cached = cache.get(name);
+        if (cached != null) {
+            callback.onDecoded(name, cached);
+            return;
+        }
+        List<Callback> callbacks = waiting.get(name);
+        if (callbacks == null) {
+            callbacks = new ArrayList<>();
+            waiting.put(name, callbacks);
+        }
+        callbacks.add(callback);
+        submit(index);
+    }
+
+    /**
+     * Moves the prefetch window to [index - RADIUS, index + RADIUS], current first,
+     * and cancels work outside it.
+     */
+    public void prefetchAround(int index) {
+        Set<String> window = new HashSet<>();
+        for (int i = index - RADIUS; i <= index + RADIUS; i++) {
+            if (i >= 0 && i < files.size()) window.add(files.get(i).getName());
+        }
+
+        Iterator<Map.Entry<String, Future<?>>> it = inFlight.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Future<?>> entry = it.next();
+            if (window.contains(entry.getKey())) continue;
+            entry.getValue().cancel(true);
+            waiting.remove(entry.getKey());
+            it.remove();
+        }
+
+        submit(index);
+        for (int distance = 1; distance <= RADIUS; distance++) {
+            if (index + distance < files.size()) submit(index + distance); // Forward swipes are the common case
+            if (index - distance >= 0) submit(index - distance);
+        }
+    }
+
+    private void submit(int index) {
+        File file = files.get(index);
+        String name = file.getName();
+        if (cache.get(name) != null || inFlight.containsKey(name)) return;
+
+        // Set before the result can be posted (both on the main thread); deliver() checks it
+        Future<?>[] self = new Future<?>[1];
+        self[0] = pool.submit(() -> {
+            Decoded decoded = null;
+            try {
+                BitmapFactory.Options options = new BitmapFactory.Options();
+                Bitmap bitmap = SampledBitmapDecoder.decode(file, KeyManager.getMasterKey(), reqWidth, reqHeight, options);
+                if (bitmap != null) decoded = new Decoded(bitmap, options.inSampleSize);
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) return; // Cancelled, not broken
+                e.printStackTrace();
+            }
+            if (Thread.currentThread().isInterrupted()) return; // Cancelled after decoding
+            Decoded result = decoded;
+            mainHandler.post(() -> deliver(name, self[0], result));
+        });
+        inFlight.put(name, self[0]);
+    }
+
+    private void deliver(String name, Future<?> task, Decoded decoded) {
+        // A cancelled task can finish its decode before it sees the interrupt; if the
+        // window came back meanwhile, 'name' belongs to a newer task
+        if (inFlight.get(name) != task) return;
+        inFlight.remove(name);
+        if (decoded != null) cache.put(name, decoded);
+        List<Callback> callbacks = waiting.remove(name);
+        if (callbacks == null) return;
+        for (Callback callback : callbacks) callback.onDecoded(name, decoded);
+    }
+
+    /** Stops all work and drops the decoded photos. */
+    public void release() {
+        pool.shutdownNow();
+        inFlight.clear();
+        waiting.clear();
+        cache.evictAll();
+    }
+}
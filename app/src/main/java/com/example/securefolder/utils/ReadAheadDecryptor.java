@@ -0,0 +1,242 @@
+package com.example.securefolder.utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-ahead decryption pipeline for video playback.
+ *
+ * A producer thread decrypts the next 'depth' segments of a SeekableVaultFile into
+ * a fixed set of reusable buffers while the player consumes the current one, so
+ * AES work overlaps with ExoPlayer's extractor instead of running inline on its loader thread.
+ *
+ * One instance is owned by one EncryptedDataSource and restarted on every open().
+ * Restarts reuse the same worker thread, so scrubbing through a video doesn't spawn a thread per seek.
+ */
+public class ReadAheadDecryptor {
+
+    public static final int DEFAULT_DEPTH = 4;
+    private static final int CHUNK_SIZE = SegmentedCrypto.SEGMENT_SIZE; // Aligned with v1 segments
+
+    // --- METRICS (process-wide, for tuning the depth) ---
+    private static final AtomicLong chunksDecrypted = new AtomicLong();
+    private static final AtomicLong underruns = new AtomicLong();
+
+    /** Chunks the producer has decrypted since process start. */
+    public static long getChunksDecrypted() { return chunksDecrypted.get(); }
+
+    /** Times the player asked for data before the producer had it ready. */
+    public static long getUnderrunCount() { return underruns.get(); }
+
+    public static void resetMetrics() {
+        chunksDecrypted.set(0);
+        underruns.set(0);
+    }
+
+    private static class Chunk {
+        byte[] data; // From BufferPool while the pipeline is running
+        int length;
+        int readOffset;
+        boolean endOfInput;
+        IOException error;
+    }
+
+    private final BlockingQueue<Chunk> freeChunks;
+    private final BlockingQueue<Chunk> filledChunks;
+    private final int depth;
+
+    private final ThreadPoolExecutor worker;
+    private Producer producer;
+    private Chunk current;
+    private boolean primed; // First chunk after a (re)start is startup latency, not an underrun
+
+    public ReadAheadDecryptor(int depth) {
+        this.depth = Math.max(1, depth);
+        this.freeChunks = new ArrayBlockingQueue<>(this.depth);
+        this.filledChunks = new ArrayBlockingQueue<>(this.depth);
+        for (int i = 0; i < this.depth; i++) freeChunks.add(new Chunk());
+        // The idle thread goes away on its own once the player is released
+        this.worker = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ParallelSegmentEncryptor.WorkerFactory("VaultReadAhead"));
+        this.worker.allowCoreThreadTimeOut(true);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Starts decrypting 'source' from 'position' on a background thread.
+     * The pipeline takes ownership of 'source' and closes it when stopped.
+     */
+    public void start(SeekableVaultFile source, long position) {
+        stop();
+        primed = false;
+        for (Chunk chunk : freeChunks) chunk.data = BufferPool.acquire(CHUNK_SIZE);
+        producer = new Producer(source, position);
+        worker.execute(producer);
+    }
+
+    /**
+     * One run of the pipeline on the worker thread. Unlike a Future, it can be stopped
+     * before it starts and still closes its source.
+     */
+    private final class Producer implements Runnable {
+        private final SeekableVaultFile source;
+        private final long position;
+        private final CountDownLatch exited = new CountDownLatch(1);
+        private Thread thread; // Guarded by this
+        private boolean stopped;
+
+        Producer(SeekableVaultFile source, long position) {
+            this.source = source;
+            this.position = position;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (stopped) {
+                    closeQuietly(source);
+                    exited.countDown();
+                    return;
+                }
+                thread = Thread.currentThread();
+            }
+            try {
+                produce(source, position);
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                }
+                exited.countDown();
+            }
+        }
+
+        void stopAndWait() {
+            synchronized (this) {
+                stopped = true;
+                if (thread != null) thread.interrupt();
+            }
+            try {
+                // Wait for the producer to let go of its chunk and the source
+                exited.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void produce(SeekableVaultFile source, long position) {
+        Chunk chunk = null;
+        try {
+            long pos = position;
+            while (!Thread.currentThread().isInterrupted()) {
+                chunk = freeChunks.take();
+                chunk.readOffset = 0;
+                chunk.length = 0;
+                chunk.error = null;
+                chunk.endOfInput = false;
+
+                try {
+                    // Fill the whole chunk so the consumer sees segment-sized pieces
+                    while (chunk.length < CHUNK_SIZE) {
+                        int read = source.read(pos, chunk.data, chunk.length, CHUNK_SIZE - chunk.length);
+                        if (read == -1) {
+                            chunk.endOfInput = true;
+                            break;
+                        }
+                        chunk.length += read;
+                        pos += read;
+                    }
+                } catch (IOException e) {
+                    chunk.error = e;
+                }
+
+                chunksDecrypted.incrementAndGet();
+                boolean done = chunk.endOfInput || chunk.error != null;
+                filledChunks.put(chunk);
+                chunk = null;
+                if (done) return;
+            }
+        } catch (InterruptedException ignored) {
+            // stop() was called
+        } finally {
+            // Don't leak a buffer that was in flight when we were stopped
+            if (chunk != null) recycle(chunk);
+            closeQuietly(source);
+        }
+    }
+
+    private static void closeQuietly(SeekableVaultFile source) {
+        try {
+            source.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Copies decrypted bytes into 'buffer'. Returns -1 at end of input.
+     */
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+
+        while (current == null || current.readOffset == current.length) {
+            if (current != null) {
+                if (current.endOfInput) return -1;
+                if (current.error != null) throw current.error; // Producer has stopped, keep failing
+                recycle(current);
+                current = null;
+            }
+
+            Chunk next = filledChunks.poll();
+            if (next == null) {
+                if (primed) underruns.incrementAndGet();
+                try {
+                    next = filledChunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            current = next;
+            primed = true;
+        }
+
+        int n = Math.min(length, current.length - current.readOffset);
+        System.arraycopy(current.data, current.readOffset, buffer, offset, n);
+        current.readOffset += n;
+        return n;
+    }
+
+    private void recycle(Chunk chunk) {
+        freeChunks.offer(chunk);
+    }
+
+    /**
+     * Stops the producer and hands every chunk buffer back to the BufferPool.
+     */
+    public void stop() {
+        if (producer != null) {
+            producer.stopAndWait();
+            producer = null;
+        }
+        if (current != null) {
+            recycle(current);
+            current = null;
+        }
+        Chunk chunk;
+        while ((chunk = filledChunks.poll()) != null) recycle(chunk);
+        for (Chunk free : freeChunks) {
+            BufferPool.release(free.data);
+            free.data = null;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.securefolder.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+
+/**
+ * Decodes fixed-size tiles of a large vault image, for deep zoom.
+ *
+ * BitmapRegionDecoder is fed from a VaultFileInputStream, so the decrypted image only
+ * ever exists in memory: it keeps the encoded bytes (the JPEG, not pixels) in native
+ * memory and decodes any rectangle at any inSampleSize from them. Only tiles that
+ * are on screen get decoded, so a gigapixel panorama costs a screenful of pixels at
+ * any zoom level.
+ *
+ * Tiles are TILE_SIZE px after sampling, keyed by (sample, column, row) and kept in an
+ * LRU by bytes. Requests are decoded on one background thread, newest first; tiles
+ * that scrolled out of view before their turn are skipped.
+ */
+public class RegionTileDecoder {
+
+    public static final int TILE_SIZE = 512;
+
+    public interface Listener {
+        /** Main thread, after a requested tile landed in the cache. */
+        void onTileReady();
+    }
+
+    private final BitmapRegionDecoder decoder;
+    private final int width;
+    private final int height;
+    private final LruCache<String, Bitmap> cache;
+    private final ExecutorService worker;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<String> pending = Collections.synchronizedSet(new HashSet<>());
+    private volatile Set<String> wanted = Collections.emptySet();
+    private Listener listener;
+
+    private RegionTileDecoder(BitmapRegionDecoder decoder) {
+        this.decoder = decoder;
+        this.width = decoder.getWidth();
+        this.height = decoder.getHeight();
+        this.cache = new LruCache<String, Bitmap>((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 4)) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+        this.worker = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingDeque<Runnable>() {
+            @Override
+            public boolean offer(Runnable r) {
+                return offerFirst(r); // Latest viewport first
+            }
+        }, new ParallelSegmentEncryptor.WorkerFactory("TileDecode"));
+    }
+
+    /**
+     * Blocking; reads the whole (encrypted) file once. Throws for formats the region
+     * decoder doesn't support, in which case the caller just keeps its sampled bitmap.
+     */
+    public static RegionTileDecoder open(File source, SecretKey key) throws IOException {
+        try (VaultFileInputStream in = VaultFileInputStream.open(source, key)) {
+            BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(in, false);
+            if (decoder == null) throw new IOException("Unsupported image for region decoding");
+            return new RegionTileDecoder(decoder);
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Tile edge in full-resolution pixels at this sample size. */
+    public static int tileSpan(int sample) {
+        return TILE_SIZE * sample;
+    }
+
+    private static String key(int sample, int column, int row) {
+        return sample + "/" + column + "/" + row;
+    }
+
+    /** Cached tile or null. Main thread (draw). */
+    public Bitmap getTile(int sample, int column, int row) {
+        return cache.get(key(sample, column, row));
+    }
+
+    /**
+     * Sets the tiles on screen (inclusive column/row range at one sample size) and
+     * queues the ones not cached yet. Queued tiles outside the latest range are
+     * dropped when the worker reaches them. Main thread, once per frame.
+     */
+    public void requestVisible(int sample, int firstColumn, int firstRow, int lastColumn, int lastRow) {
+        Set<String> visible = new HashSet<>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) visible.add(key(sample, column, row));
+        }
+        wanted = visible; // Published before anything is queued
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                String key = key(sample, column, row);
+                if (cache.get(key) == null && pending.add(key)) queue(key, sample, column, row);
+            }
+        }
+    }
+
+    private void queue(String key, int sample, int column, int row) {
+        worker.execute(() -> {
+            boolean skipped = false;
+            try {
+                if (!wanted.contains(key)) { // Scrolled or zoomed away meanwhile
+                    skipped = true;
+                    return;
+                }
+                int span = tileSpan(sample);
+                Rect region = new Rect(column * span, row * span,
+                        Math.min(width, (column + 1) * span), Math.min(height, (row + 1) * span));
+                if (region.isEmpty()) return;
+
+                BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inSampleSize = sample;
+                Bitmap decoded = decoder.decodeRegion(region, options);
+                if (decoded == null) return;
+                cache.put(key, decoded);
+                notifyListener();
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                pending.remove(key);
+                // Came back into view while this was pending: redraw so it is queued again
+                if (skipped && wanted.contains(key)) notifyListener();
+            }
+        });
+    }
+
+    private void notifyListener() {
+        mainHandler.post(() -> {
+            if (listener != null) listener.onTileReady();
+        });
+    }
+
+    /** Frees the native copy of the image and all tiles. */
+    public void release() {
+        listener = null;
+        worker.shutdownNow();
+        cache.evictAll();
+        decoder.recycle();
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.securefolder.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import java.io.File;
+import java.io.IOException;
+import javax.crypto.SecretKey;
+
+/**
+ * Decodes vault images at the size they will be shown, straight from the encrypted file.
+ *
+ * Two passes over a VaultFileInputStream: bounds only (just the header), then the real
+ * decode with inSampleSize. Plaintext is produced one segment at a time as the decoder
+ * pulls it, so there is no byte[] copy of the file and no full-resolution bitmap.
+ */
+public class SampledBitmapDecoder {
+
+    private SampledBitmapDecoder() {}
+
+    /**
+     * Largest power of two that still leaves the image at least as large as
+     * reqWidth x reqHeight once scaled to fit (fitCenter). 1 for small images.
+     */
+    public static int sampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int sample = 1;
+        while (width / (sample * 2) >= reqWidth || height / (sample * 2) >= reqHeight) sample *= 2;
+        return sample;
+    }
+
+    /** Returns null if the file isn't a decodable image. */
+    public static Bitmap decode(File source, SecretKey key, int reqWidth, int reqHeight) throws IOException {
+        return decode(source, key, reqWidth, reqHeight, new BitmapFactory.Options());
+    }
+
+    /**
+     * Same, with the caller's options: afterwards inSampleSize holds the sample used,
+     * so outWidth * inSampleSize is (about) the full-resolution width.
+     */
+    public static Bitmap decode(File source, SecretKey key, int reqWidth, int reqHeight,
+                                BitmapFactory.Options options) throws IOException {
+        try (VaultFileInputStream in = VaultFileInputStream.open(source, key)) {
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeStream(in, null, options);
+            if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+
+            in.seek(0);
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = sampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+            return BitmapFactory.decodeStream(in, null, options);
+        }
+    }
+}
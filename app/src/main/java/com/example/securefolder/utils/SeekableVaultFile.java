@@ -0,0 +1,254 @@
+package com.example.securefolder.utils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * Random-access, read-only view of an encrypted vault file.
+ *
+ * Seeking costs the same at any offset:
+ * - Segmented v1 files: read and authenticate only the segment that holds the position.
+ * - Legacy single-IV GCM files: GCM is CTR underneath, so we jump straight to the
+ *   counter block with AES/CTR. The legacy tag covers the whole file and can't be
+ *   checked on a partial read, same as the old CipherInputStream path.
+ */
+public abstract class SeekableVaultFile implements Closeable {
+
+    protected final RandomAccessFile raf;
+    protected final FileChannel channel;
+
+    protected SeekableVaultFile(RandomAccessFile raf) {
+        this.raf = raf;
+        this.channel = raf.getChannel();
+    }
+
+    public static SeekableVaultFile open(File file, SecretKey key) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] head = new byte[SegmentedCrypto.HEADER_SIZE];
+            int headLen = readAt(raf.getChannel(), 0, head, 0, head.length);
+
+            SegmentedCrypto.Header header = SegmentedCrypto.Header.parse(head);
+            if (header != null) return new Segmented(raf, key, header);
+
+            if (headLen < 12) throw new EOFException("File too short for IV");
+            byte[] iv = new byte[12];
+            System.arraycopy(head, 0, iv, 0, 12);
+            return new LegacyCtr(raf, key, iv);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        } catch (Exception e) {
+            raf.close();
+            throw new IOException(e);
+        }
+    }
+
+    /** Plaintext length in bytes. */
+    public abstract long length();
+
+    /**
+     * True if every read() is authenticated before it is returned.
+     * Legacy files can't be, so callers may want to migrate them.
+     */
+    public abstract boolean isAuthenticated();
+
+    /**
+     * Decrypts up to 'length' bytes starting at plaintext 'position'.
+     * Returns bytes read, or -1 at end of file.
+     */
+    public abstract int read(long position, byte[] buffer, int offset, int length) throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    /**
+     * Positional read that loops until the range is filled or EOF. Returns bytes read.
+     */
+    static int readAt(FileChannel channel, long position, byte[] buffer, int offset, int length) throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(buffer, offset, length);
+        int total = 0;
+        while (bb.hasRemaining()) {
+            int read = channel.read(bb, position + total);
+            if (read == -1) break;
+            total += read;
+        }
+        return total;
+    }
+
+    // --- SEGMENTED V1 ---
+
+    private static class Segmented extends SeekableVaultFile {
+        private final SegmentedCrypto.Header header;
+        private final SecretKey fileKey;
+        private final long plainLength;
+        private final long segmentCount;
+
+        private byte[] cipherBuffer; // Pooled, returned in close()
+        private byte[] plainBuffer;
+        private long cachedSegment = -1;
+        private int cachedLength = 0;
+
+        Segmented(RandomAccessFile raf, SecretKey key, SegmentedCrypto.Header header) throws Exception {
+            super(raf);
+            this.header = header;
+            this.fileKey = SegmentedCrypto.deriveFileKey(key, header);
+
+            long fileLength = raf.length();
+            this.plainLength = header.plaintextLength(fileLength);
+            this.segmentCount = header.segmentCount(fileLength);
+            if (plainLength < 0) throw new EOFException("Truncated vault file");
+
+            this.cipherBuffer = BufferPool.acquire(header.encryptedSegmentSize());
+            this.plainBuffer = BufferPool.acquire(header.segmentSize);
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            BufferPool.release(cipherBuffer);
+            BufferPool.release(plainBuffer);
+            cipherBuffer = null;
+            plainBuffer = null;
+            cachedSegment = -1;
+        }
+
+        @Override
+        public long length() {
+            return plainLength;
+        }
+
+        @Override
+        public boolean isAuthenticated() {
+            return true;
+        }
+
+        @Override
+        public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+            if (position >= plainLength) return -1;
+            if (length == 0) return 0;
+
+            long segment = position / header.segmentSize;
+            if (segment != cachedSegment) loadSegment(segment);
+
+            int within = (int) (position - segment * header.segmentSize);
+            int n = Math.min(length, cachedLength - within);
+            System.arraycopy(plainBuffer, within, buffer, offset, n);
+            return n;
+        }
+
+        private void loadSegment(long segment) throws IOException {
+            boolean last = segment == segmentCount - 1;
+            int expected = last
+                    ? (int) (raf.length() - header.segmentOffset(segment))
+                    : header.encryptedSegmentSize();
+
+            int read = readAt(channel, header.segmentOffset(segment), cipherBuffer, 0, expected);
+            if (read != expected) throw new EOFException("Truncated segment " + segment);
+
+            try {
+                // Borrowed per segment: read-ahead calls this from its own producer thread
+                cachedLength = SegmentedCrypto.decryptSegment(SegmentedCrypto.cipher(), fileKey, header, segment, last,
+                        cipherBuffer, 0, read, plainBuffer, 0);
+                cachedSegment = segment;
+            } catch (Exception e) {
+                cachedSegment = -1;
+                throw new IOException("Segment " + segment + " failed authentication", e);
+            }
+        }
+    }
+
+    // --- LEGACY SINGLE-IV GCM ---
+
+    private static class LegacyCtr extends SeekableVaultFile {
+        private static final int IV_SIZE = 12;
+        private static final int TAG_SIZE = 16;
+        private static final int BLOCK = 16;
+
+        private final SecretKey key;
+        private final byte[] iv;
+        private final long plainLength;
+        private final Cipher cipher;
+
+        private long cipherPosition = -1; // Plaintext position the cipher state is aligned to
+        private byte[] scratch = BufferPool.acquire(BufferPool.COPY);
+        private final byte[] counter = new byte[BLOCK];
+        private final byte[] skipBlock = new byte[BLOCK];
+
+        LegacyCtr(RandomAccessFile raf, SecretKey key, byte[] iv) throws Exception {
+            super(raf);
+            this.key = key;
+            this.iv = iv;
+            this.plainLength = raf.length() - IV_SIZE - TAG_SIZE;
+            // Own instance, not CryptoCache: the CTR position carries over between reads
+            this.cipher = Cipher.getInstance("AES/CTR/NoPadding");
+            if (plainLength < 0) throw new EOFException("Truncated vault file");
+        }
+
+        @Override
+        public long length() {
+            return plainLength;
+        }
+
+        @Override
+        public boolean isAuthenticated() {
+            return false;
+        }
+
+        @Override
+        public int read(long position, byte[] buffer, int offset, int length) throws IOException {
+            if (position >= plainLength) return -1;
+            if (length == 0) return 0;
+
+            int n = (int) Math.min(Math.min(length, scratch.length), plainLength - position);
+
+            int read = readAt(channel, IV_SIZE + position, scratch, 0, n);
+            if (read <= 0) return -1;
+
+            try {
+                if (position != cipherPosition) seekCipher(position);
+                cipher.update(scratch, 0, read, buffer, offset);
+                cipherPosition = position + read;
+            } catch (Exception e) {
+                cipherPosition = -1;
+                throw new IOException(e);
+            }
+            return read;
+        }
+
+        /**
+         * GCM with a 96-bit IV starts encrypting at counter block IV || 00000002.
+         */
+        private void seekCipher(long position) throws Exception {
+            long block = position / BLOCK;
+            int skip = (int) (position % BLOCK);
+
+            System.arraycopy(iv, 0, counter, 0, IV_SIZE);
+            int ctr = (int) (2 + block); // GCM wraps the low 32 bits, CTR carries: same below 64 GiB
+            counter[12] = (byte) (ctr >>> 24);
+            counter[13] = (byte) (ctr >>> 16);
+            counter[14] = (byte) (ctr >>> 8);
+            counter[15] = (byte) ctr;
+
+            cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(counter));
+            if (skip > 0) cipher.update(skipBlock, 0, skip, skipBlock, 0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            BufferPool.release(scratch);
+            scratch = null;
+        }
+    }
+}
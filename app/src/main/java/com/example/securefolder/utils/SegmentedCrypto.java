@@ -0,0 +1,299 @@
+package com.example.securefolder.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Versioned, seekable vault file format (v1).
+ *
+ * Layout:
+ *   [HEADER 32 bytes][SEGMENT 0][SEGMENT 1]...[SEGMENT N-1]
+ *
+ * Header:
+ *   magic "SVLT" (4) | version (1) | segment size (4) | salt (16) | nonce prefix (7)
+ *
+ * Every segment is an independent AES-GCM message:
+ *   ciphertext (segment size, last one may be shorter) | tag (16)
+ *
+ * The per-file key is HKDF(master key, salt) so nonces never repeat across files.
+ * Segment nonce = prefix (7) | segment index (4) | last-segment flag (1).
+ * The header is the AAD of every segment, and the last flag stops truncation.
+ */
+public class SegmentedCrypto {
+
+    public static final int SEGMENT_SIZE = 64 * 1024; // 64 KiB of plaintext per segment
+    public static final int HEADER_SIZE = 32;
+    public static final int TAG_SIZE = 16;
+
+    static final byte[] MAGIC = {'S', 'V', 'L', 'T'};
+    static final byte VERSION = 1;
+
+    private static final int SALT_SIZE = 16;
+    private static final int NONCE_PREFIX_SIZE = 7;
+    private static final int NONCE_SIZE = 12;
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final byte[] HKDF_INFO = "SecureVault segment key v1".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CONTENT_HASH_INFO = "SecureVault content hash v1".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Parsed file header. Holds everything needed to decrypt any single segment.
+     */
+    public static class Header {
+        public final int segmentSize;
+        final byte[] salt;
+        final byte[] noncePrefix;
+        final byte[] encoded;
+
+        Header(int segmentSize, byte[] salt, byte[] noncePrefix) {
+            this.segmentSize = segmentSize;
+            this.salt = salt;
+            this.noncePrefix = noncePrefix;
+
+            ByteBuffer bb = ByteBuffer.allocate(HEADER_SIZE);
+            bb.put(MAGIC).put(VERSION).putInt(segmentSize).put(salt).put(noncePrefix);
+            this.encoded = bb.array();
+        }
+
+        static Header newRandom(int segmentSize) {
+            SecureRandom random = new SecureRandom();
+            byte[] salt = new byte[SALT_SIZE];
+            byte[] prefix = new byte[NONCE_PREFIX_SIZE];
+            random.nextBytes(salt);
+            random.nextBytes(prefix);
+            return new Header(segmentSize, salt, prefix);
+        }
+
+        /**
+         * Returns null if the bytes are not a v1 header (e.g. a legacy single-IV file).
+         */
+        public static Header parse(byte[] data) {
+            if (data == null || data.length < HEADER_SIZE) return null;
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (data[i] != MAGIC[i]) return null;
+            }
+            if (data[4] != VERSION) return null;
+
+            ByteBuffer bb = ByteBuffer.wrap(data, 5, HEADER_SIZE - 5);
+            int segmentSize = bb.getInt();
+            if (segmentSize <= 0) return null;
+
+            byte[] salt = new byte[SALT_SIZE];
+            byte[] prefix = new byte[NONCE_PREFIX_SIZE];
+            bb.get(salt);
+            bb.get(prefix);
+            return new Header(segmentSize, salt, prefix);
+        }
+
+        public byte[] getEncoded() {
+            return encoded.clone();
+        }
+
+        /** Size of one full segment on disk (ciphertext + tag). */
+        public int encryptedSegmentSize() {
+            return segmentSize + TAG_SIZE;
+        }
+
+        public long segmentCount(long encryptedLength) {
+            long body = encryptedLength - HEADER_SIZE;
+            if (body < TAG_SIZE) return 0;
+            return (body + encryptedSegmentSize() - 1) / encryptedSegmentSize();
+        }
+
+        /** Plaintext length derived from the total file length. -1 if the file is malformed. */
+        public long plaintextLength(long encryptedLength) {
+            long segments = segmentCount(encryptedLength);
+            if (segments == 0) return -1;
+            return encryptedLength - HEADER_SIZE - segments * TAG_SIZE;
+        }
+
+        /** File offset of the start of the given segment. */
+        public long segmentOffset(long index) {
+            return HEADER_SIZE + index * (long) encryptedSegmentSize();
+        }
+    }
+
+    // --- KEY / NONCE DERIVATION ---
+
+    /**
+     * HKDF-SHA256 (RFC 5869) with a single output block.
+     */
+    public static SecretKey deriveFileKey(SecretKey masterKey, Header header) throws Exception {
+        SecretKey cached = CryptoCache.getFileKey(masterKey, header.salt);
+        if (cached != null) return cached;
+
+        Mac mac = CryptoCache.mac("HmacSHA256");
+        mac.init(new SecretKeySpec(header.salt, "HmacSHA256"));
+        byte[] prk = mac.doFinal(masterKey.getEncoded());
+
+        mac.init(new SecretKeySpec(prk, "HmacSHA256"));
+        mac.update(HKDF_INFO);
+        mac.update((byte) 0x01);
+        byte[] okm = mac.doFinal();
+        Arrays.fill(prk, (byte) 0);
+
+        SecretKey fileKey = new SecretKeySpec(okm, "AES");
+        CryptoCache.putFileKey(masterKey, header.salt, fileKey);
+        return fileKey;
+    }
+
+    /**
+     * Key of the content hash (HMAC-SHA256) used to spot duplicate imports. HKDF-SHA256
+     * of the master key with no salt, under its own info string: unrelated to any file
+     * key, and without the master key a stored hash doesn't confirm a guessed file.
+     */
+    public static SecretKey deriveContentHashKey(SecretKey masterKey) throws Exception {
+        Mac mac = CryptoCache.mac("HmacSHA256");
+        mac.init(new SecretKeySpec(new byte[32], "HmacSHA256")); // RFC 5869: no salt = HashLen zeros
+        byte[] prk = mac.doFinal(masterKey.getEncoded());
+
+        mac.init(new SecretKeySpec(prk, "HmacSHA256"));
+        mac.update(CONTENT_HASH_INFO);
+        mac.update((byte) 0x01);
+        byte[] okm = mac.doFinal();
+        Arrays.fill(prk, (byte) 0);
+        return new SecretKeySpec(okm, "HmacSHA256");
+    }
+
+    static byte[] segmentNonce(Header header, long index, boolean last) {
+        ByteBuffer bb = ByteBuffer.allocate(NONCE_SIZE);
+        bb.put(header.noncePrefix);
+        bb.putInt((int) index);
+        bb.put(last ? (byte) 1 : (byte) 0);
+        return bb.array();
+    }
+
+    // --- SINGLE SEGMENT OPERATIONS ---
+
+    /**
+     * Encrypts one segment. Output must have room for len + TAG_SIZE bytes.
+     * Returns number of bytes written.
+     */
+    public static int encryptSegment(Cipher cipher, SecretKey fileKey, Header header, long index, boolean last,
+                                     byte[] in, int inOff, int len, byte[] out, int outOff) throws Exception {
+        cipher.init(Cipher.ENCRYPT_MODE, fileKey, new GCMParameterSpec(TAG_SIZE * 8, segmentNonce(header, index, last)));
+        cipher.updateAAD(header.encoded);
+        return cipher.doFinal(in, inOff, len, out, outOff);
+    }
+
+    /**
+     * Decrypts and authenticates one segment (ciphertext + tag).
+     * Throws AEADBadTagException if the segment was modified, reordered or truncated.
+     */
+    public static int decryptSegment(Cipher cipher, SecretKey fileKey, Header header, long index, boolean last,
+                                     byte[] in, int inOff, int len, byte[] out, int outOff) throws Exception {
+        cipher.init(Cipher.DECRYPT_MODE, fileKey, new GCMParameterSpec(TAG_SIZE * 8, segmentNonce(header, index, last)));
+        cipher.updateAAD(header.encoded);
+        return cipher.doFinal(in, inOff, len, out, outOff);
+    }
+
+    /**
+     * ByteBuffer variant of encryptSegment() for the FileChannel engine. Consumes 'in'
+     * up to its limit and writes len + TAG_SIZE bytes at 'out's position.
+     */
+    public static int encryptSegment(Cipher cipher, SecretKey fileKey, Header header, long index, boolean last,
+                                     ByteBuffer in, ByteBuffer out) throws Exception {
+        cipher.init(Cipher.ENCRYPT_MODE, fileKey, new GCMParameterSpec(TAG_SIZE * 8, segmentNonce(header, index, last)));
+        cipher.updateAAD(header.encoded);
+        return cipher.doFinal(in, out);
+    }
+
+    /**
+     * ByteBuffer variant of decryptSegment(). 'in' holds ciphertext + tag up to its limit.
+     */
+    public static int decryptSegment(Cipher cipher, SecretKey fileKey, Header header, long index, boolean last,
+                                     ByteBuffer in, ByteBuffer out) throws Exception {
+        cipher.init(Cipher.DECRYPT_MODE, fileKey, new GCMParameterSpec(TAG_SIZE * 8, segmentNonce(header, index, last)));
+        cipher.updateAAD(header.encoded);
+        return cipher.doFinal(in, out);
+    }
+
+    /**
+     * This thread's cached GCM cipher, for one init/doFinal at a time.
+     */
+    public static Cipher cipher() throws Exception {
+        return CryptoCache.cipher(TRANSFORMATION);
+    }
+
+    // --- STREAMING ---
+
+    /**
+     * Encrypts the whole input into the v1 format.
+     */
+    public static void encrypt(SecretKey masterKey, InputStream in, OutputStream out) throws Exception {
+        SegmentedOutputStream sos = new SegmentedOutputStream(out, masterKey);
+        byte[] buffer = BufferPool.acquire(SEGMENT_SIZE);
+        try {
+            int read;
+            while ((read = in.read(buffer, 0, SEGMENT_SIZE)) != -1) {
+                sos.write(buffer, 0, read);
+            }
+            sos.finish();
+        } finally {
+            BufferPool.release(buffer);
+            sos.release();
+        }
+    }
+
+    /**
+     * Decrypts a v1 stream whose header has already been consumed by the caller.
+     */
+    public static void decrypt(SecretKey masterKey, Header header, InputStream in, OutputStream out) throws Exception {
+        SecretKey fileKey = deriveFileKey(masterKey, header);
+
+        int encSegment = header.encryptedSegmentSize();
+        // Double buffering: we only know a segment is the last one once the next read hits EOF.
+        byte[] current = BufferPool.acquire(encSegment);
+        byte[] next = BufferPool.acquire(encSegment);
+        byte[] plain = BufferPool.acquire(header.segmentSize);
+        try {
+            int currentLen = readFully(in, current, 0, encSegment);
+            if (currentLen < TAG_SIZE) throw new EOFException("Missing segment");
+
+            long index = 0;
+            while (true) {
+                int nextLen = (currentLen == encSegment) ? readFully(in, next, 0, encSegment) : 0;
+                boolean last = nextLen == 0;
+                if (!last && nextLen < TAG_SIZE) throw new EOFException("Truncated segment");
+
+                // Borrowed per segment: 'out' may itself encrypt on this thread
+                int n = decryptSegment(cipher(), fileKey, header, index, last, current, 0, currentLen, plain, 0);
+                out.write(plain, 0, n);
+                if (last) break;
+
+                byte[] tmp = current;
+                current = next;
+                next = tmp;
+                currentLen = nextLen;
+                index++;
+            }
+        } finally {
+            BufferPool.release(current);
+            BufferPool.release(next);
+            BufferPool.release(plain);
+        }
+    }
+
+    /**
+     * Reads until the buffer is full or EOF. Returns bytes read (0 at EOF).
+     */
+    static int readFully(InputStream in, byte[] buffer, int off, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int read = in.read(buffer, off + total, len - total);
+            if (read == -1) break;
+            total += read;
+        }
+        return total;
+    }
+}
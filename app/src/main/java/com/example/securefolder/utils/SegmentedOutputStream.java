@@ -0,0 +1,118 @@
+package com.example.securefolder.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.crypto.SecretKey;
+
+/**
+ * Encrypting OutputStream that writes the segmented v1 vault format.
+ *
+ * Plaintext is collected into one segment buffer. A full segment is only sealed
+ * once more data arrives, because the final segment carries the "last" flag
+ * in its nonce. finish()/close() seals whatever is left as the last segment.
+ */
+public class SegmentedOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final SecretKey fileKey;
+    private final SegmentedCrypto.Header header;
+
+    private final int segmentSize;
+    private byte[] plainBuffer;  // Pooled, see release()
+    private byte[] cipherBuffer;
+    private int buffered = 0;
+    private long segmentIndex = 0;
+    private boolean finished = false;
+
+    public SegmentedOutputStream(OutputStream out, SecretKey masterKey) throws IOException {
+        this(out, masterKey, SegmentedCrypto.SEGMENT_SIZE);
+    }
+
+    public SegmentedOutputStream(OutputStream out, SecretKey masterKey, int segmentSize) throws IOException {
+        this.out = out;
+        try {
+            this.header = SegmentedCrypto.Header.newRandom(segmentSize);
+            this.fileKey = SegmentedCrypto.deriveFileKey(masterKey, header);
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        this.segmentSize = segmentSize;
+        this.plainBuffer = BufferPool.acquire(segmentSize);
+        this.cipherBuffer = BufferPool.acquire(segmentSize + SegmentedCrypto.TAG_SIZE);
+
+        out.write(header.encoded);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (finished) throw new IOException("Stream already finished");
+        if (buffered == segmentSize) sealSegment(false);
+        plainBuffer[buffered++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) throw new IOException("Stream already finished");
+        while (len > 0) {
+            // Buffer is full and more data is coming, so it is not the last segment.
+            if (buffered == segmentSize) {
+                sealSegment(false);
+            }
+            int n = Math.min(len, segmentSize - buffered);
+            System.arraycopy(b, off, plainBuffer, buffered, n);
+            buffered += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void sealSegment(boolean last) throws IOException {
+        try {
+            int n = SegmentedCrypto.encryptSegment(SegmentedCrypto.cipher(), fileKey, header, segmentIndex, last,
+                    plainBuffer, 0, buffered, cipherBuffer, 0);
+            out.write(cipherBuffer, 0, n);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        segmentIndex++;
+        buffered = 0;
+    }
+
+    /**
+     * Seals the final segment without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (finished) return;
+        sealSegment(true);
+        finished = true;
+        out.flush();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Returns the segment buffers to the BufferPool. The stream is unusable afterwards.
+     */
+    public void release() {
+        finished = true;
+        BufferPool.release(plainBuffer);
+        BufferPool.release(cipherBuffer);
+        plainBuffer = null;
+        cipherBuffer = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            release();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.securefolder.utils;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.LruCache;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Memory tier of the thumbnail cache: decoded bitmaps in an LRU bounded by bytes.
+ *
+ * Bitmaps that have left the LRU and that no view shows any more are kept in a small
+ * pool and handed back to BitmapFactory as inBitmap, so a fast scroll recycles pixel
+ * buffers instead of allocating (and collecting) a new one per row. Views hold their
+ * bitmap through retain() / release() (see ThumbnailStore.Callback); an evicted bitmap
+ * still on screen only joins the pool once its last holder lets go.
+ */
+class ThumbnailMemoryCache {
+
+    private static final int MAX_REUSABLE = 16;
+
+    private final LruCache<String, Bitmap> cache;
+    private final ArrayDeque<Bitmap> reusable = new ArrayDeque<>();
+    // Guarded by 'reusable'. Weak, so holds a view never released don't pin bitmaps
+    private final Map<Bitmap, Integer> holds = new WeakHashMap<>();
+    private final Set<Bitmap> evictedWhileHeld = Collections.newSetFromMap(new WeakHashMap<Bitmap, Boolean>());
+    private volatile boolean wiping = false;
+
+    ThumbnailMemoryCache(int maxBytes) {
+        this.cache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                if (!evicted || wiping) return;
+                ThumbnailStore.countMemoryEviction();
+                synchronized (reusable) {
+                    if (holds.containsKey(oldValue)) evictedWhileHeld.add(oldValue); // Pooled on release()
+                    else offerReusable(oldValue);
+                }
+            }
+        };
+    }
+
+    /** 1/8 of the per-app heap limit, the usual share for an image cache. */
+    static int defaultSize(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        return am.getMemoryClass() / 8 * 1024 * 1024;
+    }
+
+    /** The cached bitmap with a retain() taken for the caller, or null. */
+    Bitmap getAndRetain(String systemName) {
+        synchronized (reusable) { // Not pooled between the lookup and the retain
+            Bitmap bitmap = cache.get(systemName);
+            if (bitmap != null) retain(bitmap);
+            return bitmap;
+        }
+    }
+
+    void put(String systemName, Bitmap bitmap) {
+        cache.put(systemName, bitmap);
+    }
+
+    void remove(String systemName) {
+        cache.remove(systemName);
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    int maxSize() {
+        return cache.maxSize();
+    }
+
+    // --- inBitmap POOL ---
+
+    /** One more view (or pending delivery to one) shows 'bitmap'. */
+    void retain(Bitmap bitmap) {
+        synchronized (reusable) {
+            Integer count = holds.get(bitmap);
+            holds.put(bitmap, count != null ? count + 1 : 1);
+        }
+    }
+
+    /** Drops a retain(); the last one pools the bitmap if the LRU has evicted it. */
+    void release(Bitmap bitmap) {
+        synchronized (reusable) {
+            Integer count = holds.get(bitmap);
+            if (count == null) return;
+            if (count > 1) {
+                holds.put(bitmap, count - 1);
+                return;
+            }
+            holds.remove(bitmap);
+            if (evictedWhileHeld.remove(bitmap)) offerReusable(bitmap);
+        }
+    }
+
+    /** Call holding 'reusable'. */
+    private void offerReusable(Bitmap bitmap) {
+        if (!bitmap.isMutable() || bitmap.isRecycled()) return;
+        if (reusable.size() >= MAX_REUSABLE) reusable.pollFirst();
+        reusable.addLast(bitmap);
+    }
+
+    /**
+     * A pooled bitmap with room for 'byteCount' bytes, or null. Removed from the pool;
+     * pass it as inBitmap (with inMutable) and drop it if the decode rejects it.
+     */
+    Bitmap takeReusable(int byteCount) {
+        synchronized (reusable) {
+            Iterator<Bitmap> it = reusable.iterator();
+            while (it.hasNext()) {
+                Bitmap candidate = it.next();
+                if (candidate.getAllocationByteCount() >= byteCount) {
+                    it.remove();
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops every decoded thumbnail (on lock). Pooled buffers are blanked first since
+     * nothing displays them; cached ones may still be on screen and are only released.
+     */
+    void wipe() {
+        synchronized (this) {
+            wiping = true;
+            try {
+                cache.evictAll();
+            } finally {
+                wiping = false;
+            }
+        }
+        synchronized (reusable) {
+            for (Bitmap bitmap : reusable) {
+                if (!bitmap.isRecycled()) bitmap.eraseColor(Color.TRANSPARENT);
+            }
+            reusable.clear();
+            evictedWhileHeld.clear(); // Released later, but not reused: they may hold old pixels
+        }
+    }
+}
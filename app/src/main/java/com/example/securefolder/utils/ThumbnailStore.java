@@ -0,0 +1,442 @@
+package com.example.securefolder.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.MediaDataSource;
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.SecretKey;
+
+/**
+ * Small encrypted previews for photos and videos, so grids never open the originals.
+ *
+ * Each thumbnail is a JPEG of at most MAX_EDGE px on the long side, encrypted with the
+ * master key like any vault file and stored under noBackupFilesDir/thumbs/<systemName>.
+ * They are derived data: left out of backups and rebuilt on demand.
+ *
+ * - generate(): blocking, called on the import thread right after the original is written.
+ * - loadAsync(): for list binds. Existing thumbnails are read on a LIFO loader thread
+ *   (newest request = the row just scrolled into view). Missing ones (items imported
+ *   before this existed, or restored from a backup) go to a FIFO backfill thread that
+ *   decodes the original once, downsampled, and stores the result.
+ *
+ * Two cache tiers sit in front of the originals:
+ * - Memory: decoded bitmaps, LRU by bytes (see ThumbnailMemoryCache). Wiped on lock.
+ * - Disk: the encrypted files, LRU by last access within DISK_BUDGET. An evicted
+ *   thumbnail is simply backfilled again the next time it is needed.
+ */
+public class ThumbnailStore {
+
+    public static final int MAX_EDGE = 256;
+    private static final int QUALITY = 80;
+    private static final long DISK_BUDGET = 64L * 1024 * 1024;
+
+    // --- METRICS (process-wide, for sizing the two tiers) ---
+    private static final AtomicLong memoryHits = new AtomicLong();
+    private static final AtomicLong memoryMisses = new AtomicLong();
+    private static final AtomicLong memoryEvictions = new AtomicLong();
+    private static final AtomicLong diskHits = new AtomicLong();
+    private static final AtomicLong diskMisses = new AtomicLong();
+    private static final AtomicLong diskEvictions = new AtomicLong();
+
+    public static long getMemoryHits() { return memoryHits.get(); }
+
+    public static long getMemoryMisses() { return memoryMisses.get(); }
+
+    public static long getMemoryEvictions() { return memoryEvictions.get(); }
+
+    public static long getDiskHits() { return diskHits.get(); }
+
+    /** Disk lookups that found nothing and had to backfill from the original. */
+    public static long getDiskMisses() { return diskMisses.get(); }
+
+    public static long getDiskEvictions() { return diskEvictions.get(); }
+
+    public static void resetMetrics() {
+        memoryHits.set(0);
+        memoryMisses.set(0);
+        memoryEvictions.set(0);
+        diskHits.set(0);
+        diskMisses.set(0);
+        diskEvictions.set(0);
+    }
+
+    static void countMemoryEviction() {
+        memoryEvictions.incrementAndGet();
+    }
+
+    public interface Callback {
+        /**
+         * Main thread; straight from loadAsync() on a memory hit. Only called when a
+         * thumbnail is available. The receiver holds 'thumbnail' until it calls
+         * release() (right away if it doesn't show it); until then its buffer isn't reused.
+         */
+        void onThumbnail(String systemName, Bitmap thumbnail);
+    }
+
+    private static ThumbnailStore instance;
+
+    private final File dir;
+    private final ThumbnailMemoryCache memory;
+    private final LinkedHashMap<String, Long> diskIndex = new LinkedHashMap<>(64, 0.75f, true); // Access order
+    private long diskBytes = 0;
+    private boolean diskIndexed = false;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService loader;
+    private final ExecutorService backfill;
+    // Backfill dedupe while scrolling: callbacks waiting per queued system name. Guarded by itself
+    private final Map<String, List<Callback>> queued = new HashMap<>();
+
+    private ThumbnailStore(Context context) {
+        this.dir = new File(context.getApplicationContext().getNoBackupFilesDir(), "thumbs");
+        if (!dir.exists()) dir.mkdirs();
+        this.memory = new ThumbnailMemoryCache(ThumbnailMemoryCache.defaultSize(context));
+        KeyManager.addLockListener(this::clearMemoryCache);
+
+        // Single thread, but takes the most recently submitted request first
+        this.loader = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingDeque<Runnable>() {
+            @Override
+            public boolean offer(Runnable r) {
+                return offerFirst(r);
+            }
+        }, new ParallelSegmentEncryptor.WorkerFactory("ThumbLoad"));
+        this.backfill = Executors.newSingleThreadExecutor(new ParallelSegmentEncryptor.WorkerFactory("ThumbBackfill"));
+    }
+
+    public static synchronized ThumbnailStore getInstance(Context context) {
+        if (instance == null) instance = new ThumbnailStore(context);
+        return instance;
+    }
+
+    /** Drops decoded thumbnails from memory. Also runs on every KeyManager.clearKey(). */
+    public void clearMemoryCache() {
+        memory.wipe();
+    }
+
+    /** File types that get a thumbnail (documents keep their icon). */
+    public static boolean supports(String type) {
+        return "PHOTO".equals(type) || "VIDEO".equals(type);
+    }
+
+    private File getFile(String systemName) {
+        return new File(dir, systemName);
+    }
+
+    public boolean exists(String systemName) {
+        return getFile(systemName).exists();
+    }
+
+    /** Call whenever the original leaves the vault (restore, delete forever). */
+    public void delete(String systemName) {
+        memory.remove(systemName);
+        synchronized (diskIndex) {
+            ensureDiskIndex();
+            Long size = diskIndex.remove(systemName);
+            if (size != null) diskBytes -= size;
+        }
+        File file = getFile(systemName);
+        if (file.exists()) file.delete();
+    }
+
+    // --- WRITE ---
+
+    /**
+     * Builds and stores the thumbnail for a vault file. Blocking; returns false if the
+     * type has no thumbnail or the original can't be decoded.
+     * The bitmap also goes into the memory tier, since the grid shows it right after import.
+     */
+    public boolean generate(String type, String systemName, File source) {
+        Bitmap thumbnail = build(type, source);
+        if (thumbnail == null) return false;
+        memory.put(systemName, thumbnail); // Not held: nothing shows it yet
+        return store(systemName, thumbnail);
+    }
+
+    private Bitmap build(String type, File source) {
+        SecretKey key = KeyManager.getMasterKey();
+        if (key == null || !supports(type)) return null;
+        try {
+            return "VIDEO".equals(type) ? decodeVideoFrame(source, key) : decodePhoto(source, key);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private boolean store(String systemName, Bitmap thumbnail) {
+        SecretKey key = KeyManager.getMasterKey();
+        if (key == null) return false;
+        try {
+            ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, QUALITY, jpeg);
+
+            // Temp + rename, so a killed import never leaves a half-written thumbnail
+            File temp = new File(dir, systemName + ".tmp");
+            boolean success = CryptoManager.encrypt(key, new ByteArrayInputStream(jpeg.toByteArray()),
+                    new FileOutputStream(temp));
+            File file = getFile(systemName);
+            if (success && temp.renameTo(file)) {
+                recordDisk(systemName, file.length());
+                return true;
+            }
+            temp.delete();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    // --- READ ---
+
+    /**
+     * Blocking read of a stored thumbnail (memory, then disk), or null if there is none yet.
+     * Held like a Callback's bitmap: release() it when done.
+     */
+    public Bitmap load(String systemName) {
+        Bitmap bitmap = getCached(systemName);
+        return bitmap != null ? bitmap : loadFromDisk(systemName);
+    }
+
+    /** Hands back a bitmap from load() / a Callback once no view shows it. */
+    public void release(Bitmap thumbnail) {
+        if (thumbnail != null) memory.release(thumbnail);
+    }
+
+    /** Memory hit, retained for the caller. */
+    private Bitmap getCached(String systemName) {
+        Bitmap bitmap = memory.getAndRetain(systemName);
+        (bitmap != null ? memoryHits : memoryMisses).incrementAndGet();
+        return bitmap;
+    }
+
+    private Bitmap loadFromDisk(String systemName) {
+        File file = getFile(systemName);
+        SecretKey key = KeyManager.getMasterKey();
+        if (key == null) return null;
+        if (!file.exists()) {
+            diskMisses.incrementAndGet();
+            return null;
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+            if (!CryptoManager.decrypt(key, new FileInputStream(file), out)) return null;
+            byte[] jpeg = out.toByteArray();
+
+            Bitmap bitmap = decodeReusing(jpeg);
+            if (bitmap == null) return null;
+            diskHits.incrementAndGet();
+            touchDisk(systemName, file);
+            memory.retain(bitmap); // For the caller
+            memory.put(systemName, bitmap);
+            return bitmap;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /** Decodes into an evicted bitmap's buffer when one is big enough. */
+    private Bitmap decodeReusing(byte[] jpeg) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) return null;
+
+        options.inJustDecodeBounds = false;
+        options.inMutable = true; // Required for inBitmap, and lets this bitmap be reused in turn
+        options.inBitmap = memory.takeReusable(options.outWidth * options.outHeight * 4); // ARGB_8888
+        try {
+            return BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+        } catch (IllegalArgumentException e) {
+            // Pooled bitmap didn't fit after all; decode into a fresh one
+            options.inBitmap = null;
+            return BitmapFactory.decodeByteArray(jpeg, 0, jpeg.length, options);
+        }
+    }
+
+    /**
+     * Loads the thumbnail off the main thread, generating it first if it is missing.
+     * 'source' is the encrypted original, only read for a backfill.
+     */
+    public void loadAsync(String type, String systemName, File source, Callback callback) {
+        // Memory hits are answered right here, before the bind returns
+        Bitmap cached = getCached(systemName);
+        if (cached != null) {
+            callback.onThumbnail(systemName, cached);
+            return;
+        }
+
+        loader.execute(() -> {
+            Bitmap thumbnail = loadFromDisk(systemName);
+            if (thumbnail != null) {
+                mainHandler.post(() -> callback.onThumbnail(systemName, thumbnail));
+                return;
+            }
+            if (!supports(type)) return;
+            synchronized (queued) {
+                List<Callback> waiting = queued.get(systemName);
+                if (waiting != null) {
+                    waiting.add(callback); // Already being built, e.g. rebound while scrolling back
+                    return;
+                }
+                waiting = new ArrayList<>();
+                waiting.add(callback);
+                queued.put(systemName, waiting);
+            }
+
+            backfill.execute(() -> {
+                Bitmap built = null;
+                try {
+                    built = build(type, source);
+                    if (built == null) return;
+                    memory.retain(built); // For the first callback
+                    memory.put(systemName, built);
+                    store(systemName, built);
+                } finally {
+                    List<Callback> callbacks;
+                    synchronized (queued) {
+                        callbacks = queued.remove(systemName);
+                    }
+                    Bitmap result = built;
+                    if (result != null && callbacks != null) {
+                        for (int i = 1; i < callbacks.size(); i++) memory.retain(result);
+                        mainHandler.post(() -> {
+                            for (Callback each : callbacks) each.onThumbnail(systemName, result);
+                        });
+                    }
+                }
+            });
+        });
+    }
+
+    // --- DISK LRU ---
+
+    /** Builds the access-ordered index from the directory once, oldest first. */
+    private void ensureDiskIndex() {
+        if (diskIndexed) return;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+            for (File file : files) {
+                if (file.getName().endsWith(".tmp")) continue; // Write in flight (or killed), not a thumbnail yet
+                diskIndex.put(file.getName(), file.length());
+                diskBytes += file.length();
+            }
+        }
+        diskIndexed = true;
+    }
+
+    private void recordDisk(String systemName, long size) {
+        synchronized (diskIndex) {
+            ensureDiskIndex();
+            Long previous = diskIndex.put(systemName, size);
+            diskBytes += size - (previous != null ? previous : 0);
+
+            Iterator<Map.Entry<String, Long>> it = diskIndex.entrySet().iterator();
+            while (diskBytes > DISK_BUDGET && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(systemName)) continue;
+                it.remove();
+                diskBytes -= eldest.getValue();
+                getFile(eldest.getKey()).delete();
+                diskEvictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void touchDisk(String systemName, File file) {
+        synchronized (diskIndex) {
+            ensureDiskIndex();
+            diskIndex.get(systemName); // Moves it to the young end
+        }
+        file.setLastModified(System.currentTimeMillis()); // So the order survives a restart
+    }
+
+    // --- DECODING (downsampled, never the full original in memory) ---
+
+    private static Bitmap decodePhoto(File source, SecretKey key) throws IOException {
+        return scaleDown(SampledBitmapDecoder.decode(source, key, MAX_EDGE, MAX_EDGE));
+    }
+
+    private static Bitmap decodeVideoFrame(File source, SecretKey key) throws IOException {
+        try (SeekableVaultFile file = SeekableVaultFile.open(source, key)) {
+            MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+            try {
+                retriever.setDataSource(new VaultMediaDataSource(file));
+                Bitmap frame;
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+                    // Decoder scales for us, no full-resolution frame
+                    frame = retriever.getScaledFrameAtTime(-1, MediaMetadataRetriever.OPTION_CLOSEST_SYNC,
+                            MAX_EDGE, MAX_EDGE);
+                } else {
+                    frame = retriever.getFrameAtTime();
+                }
+                return scaleDown(frame);
+            } finally {
+                retriever.release();
+            }
+        }
+    }
+
+    private static Bitmap scaleDown(Bitmap bitmap) {
+        if (bitmap == null) return null;
+        int longEdge = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longEdge <= MAX_EDGE) return bitmap;
+
+        float scale = MAX_EDGE / (float) longEdge;
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+        if (scaled != bitmap) bitmap.recycle();
+        return scaled;
+    }
+
+    /**
+     * Lets MediaMetadataRetriever read an encrypted video in place.
+     */
+    private static class VaultMediaDataSource extends MediaDataSource {
+        private final SeekableVaultFile file;
+
+        VaultMediaDataSource(SeekableVaultFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public int readAt(long position, byte[] buffer, int offset, int size) throws IOException {
+            if (size == 0) return 0;
+            return file.read(position, buffer, offset, size);
+        }
+
+        @Override
+        public long getSize() {
+            return file.length();
+        }
+
+        @Override
+        public void close() {
+            // Owned by decodeVideoFrame()
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.securefolder.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.crypto.SecretKey;
+
+/**
+ * Sequential InputStream over a SeekableVaultFile, for decoders that want a stream
+ * (BitmapFactory) without the whole plaintext in memory.
+ *
+ * Reads are positional, so mark()/reset() are free and have no read limit.
+ */
+public class VaultFileInputStream extends InputStream {
+
+    private final SeekableVaultFile file;
+    private long position;
+    private long mark;
+
+    public VaultFileInputStream(SeekableVaultFile file) {
+        this.file = file;
+    }
+
+    public static VaultFileInputStream open(File file, SecretKey key) throws IOException {
+        return new VaultFileInputStream(SeekableVaultFile.open(file, key));
+    }
+
+    /** Plaintext length in bytes. */
+    public long length() {
+        return file.length();
+    }
+
+    /**
+     * Moves to an absolute plaintext position. Unlike reset(), this doesn't depend on
+     * a mark the consumer may have moved (BitmapFactory marks streams itself).
+     */
+    public void seek(long position) {
+        this.position = Math.max(0, position);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int read = read(one, 0, 1);
+        return read == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+        int read = file.read(position, buffer, offset, length);
+        if (read > 0) position += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(0, Math.min(n, file.length() - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, file.length() - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        mark = position;
+    }
+
+    @Override
+    public synchronized void reset() {
+        position = mark;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
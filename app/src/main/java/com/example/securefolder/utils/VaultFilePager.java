@@ -0,0 +1,123 @@
+package com.example.securefolder.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Paged listing of one file type for a grid, or of the Trash, newest first.
+ *
+ * Pages come from VaultMetadataRepository.getFilesPage() (a keyset query) on a
+ * background thread, so the first screen shows after one small query instead of a
+ * scan of the whole table. Further pages load as the list nears its end, see
+ * attachTo().
+ *
+ * Everything except the queries runs on the main thread.
+ */
+public class VaultFilePager {
+
+    public static final int PAGE_SIZE = 120;     // A few screens of a 3-column grid
+    private static final int PREFETCH_DISTANCE = 40; // Rows from the end that trigger the next page
+
+    public interface Listener {
+        /** Main thread. Everything loaded so far; 'complete' once the last row is in. */
+        void onFilesLoaded(List<VaultMetadataRepository.FileMeta> files, boolean complete);
+    }
+
+    private final VaultMetadataRepository metadata;
+    private final String type;
+    private final boolean deleted;
+    private final Listener listener;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(new ParallelSegmentEncryptor.WorkerFactory("VaultPager"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private List<VaultMetadataRepository.FileMeta> files = Collections.emptyList();
+    private boolean complete = false;
+    private boolean loading = false;
+    private int generation = 0; // Bumped by refresh(); results of older loads are dropped
+
+    public VaultFilePager(VaultMetadataRepository metadata, String type, Listener listener) {
+        this(metadata, type, false, listener);
+    }
+
+    /** 'deleted' lists trashed rows; with a null 'type', of every type (the Trash). */
+    public VaultFilePager(VaultMetadataRepository metadata, String type, boolean deleted, Listener listener) {
+        this.metadata = metadata;
+        this.type = type;
+        this.deleted = deleted;
+        this.listener = listener;
+    }
+
+    /**
+     * Reloads from the top (after an import, trash or restore), keeping as many rows as
+     * are loaded now so the list doesn't shrink back to one page under the user.
+     */
+    public void refresh() {
+        int limit = Math.max(PAGE_SIZE, files.size());
+        int expected = ++generation;
+        loading = true;
+        worker.execute(() -> {
+            List<VaultMetadataRepository.FileMeta> page = metadata.getFilesPage(type, deleted, null, limit);
+            mainHandler.post(() -> {
+                if (expected != generation) return;
+                loading = false;
+                deliver(page, page.size() < limit);
+            });
+        });
+    }
+
+    /** Queues the page after the last loaded row, unless one is loading or all are in. */
+    public void loadNextPage() {
+        if (loading || complete) return;
+        if (files.isEmpty()) {
+            refresh();
+            return;
+        }
+        List<VaultMetadataRepository.FileMeta> current = files;
+        VaultMetadataRepository.FileMeta last = current.get(current.size() - 1);
+        int expected = generation;
+        loading = true;
+        worker.execute(() -> {
+            List<VaultMetadataRepository.FileMeta> page = metadata.getFilesPage(type, deleted, last, PAGE_SIZE);
+            mainHandler.post(() -> {
+                if (expected != generation) return;
+                loading = false;
+                List<VaultMetadataRepository.FileMeta> all = new ArrayList<>(current.size() + page.size());
+                all.addAll(current);
+                all.addAll(page);
+                deliver(all, page.size() < PAGE_SIZE);
+            });
+        });
+    }
+
+    private void deliver(List<VaultMetadataRepository.FileMeta> all, boolean complete) {
+        this.files = all;
+        this.complete = complete;
+        listener.onFilesLoaded(Collections.unmodifiableList(all), complete);
+    }
+
+    /** Loads the next page whenever the list scrolls within PREFETCH_DISTANCE rows of its end. */
+    public void attachTo(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (!(rv.getLayoutManager() instanceof LinearLayoutManager)) return; // Also GridLayoutManager
+                LinearLayoutManager layout = (LinearLayoutManager) rv.getLayoutManager();
+                if (layout.findLastVisibleItemPosition() >= layout.getItemCount() - PREFETCH_DISTANCE) loadNextPage();
+            }
+        });
+    }
+
+    /** Stops loading; pending results are dropped. */
+    public void release() {
+        generation++;
+        worker.shutdownNow();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.securefolder.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Listing of one file type around a start row, newest first, for the photo viewer.
+ *
+ * Opened with only the start row's keyset position (timestamp, id), so a grid doesn't
+ * have to hand its list over in an Intent. Pages of VaultFilePager.PAGE_SIZE rows load
+ * on either side (VaultMetadataRepository.getFilesPage / getFilesPageBefore) as the
+ * user swipes near an end, see ensureAround().
+ *
+ * Everything except the queries runs on the main thread.
+ */
+public class VaultFileWindow {
+
+    private static final int PREFETCH_DISTANCE = 10; // Pages from an end that trigger the next load
+
+    public interface Listener {
+        /** Main thread. Newer rows, newest first, to put in front of the loaded ones. */
+        void onNewerLoaded(List<VaultMetadataRepository.FileMeta> rows);
+
+        /** Main thread. Older rows, newest first, to put after the loaded ones. */
+        void onOlderLoaded(List<VaultMetadataRepository.FileMeta> rows);
+    }
+
+    private final VaultMetadataRepository metadata;
+    private final String type;
+    private final Listener listener;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(new ParallelSegmentEncryptor.WorkerFactory("VaultWindow"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Keyset positions of the first (newest) and last (oldest) loaded rows
+    private long newestTimestamp, oldestTimestamp;
+    private int newestId, oldestId;
+    private boolean loadingNewer, loadingOlder;
+    private boolean hasNewer = true, hasOlder = true;
+    private boolean released = false;
+
+    public VaultFileWindow(VaultMetadataRepository metadata, String type, long timestamp, int id, Listener listener) {
+        this.metadata = metadata;
+        this.type = type;
+        this.listener = listener;
+        this.newestTimestamp = this.oldestTimestamp = timestamp;
+        this.newestId = this.oldestId = id;
+    }
+
+    /** Loads the next page on a side when 'position' is within PREFETCH_DISTANCE of that end. */
+    public void ensureAround(int position, int size) {
+        if (position < PREFETCH_DISTANCE) loadNewer();
+        if (position >= size - PREFETCH_DISTANCE) loadOlder();
+    }
+
+    private void loadNewer() {
+        if (loadingNewer || !hasNewer || released) return;
+        loadingNewer = true;
+        long timestamp = newestTimestamp;
+        int id = newestId;
+        worker.execute(() -> {
+            List<VaultMetadataRepository.FileMeta> rows =
+                    metadata.getFilesPageBefore(type, false, timestamp, id, VaultFilePager.PAGE_SIZE);
+            mainHandler.post(() -> {
+                if (released) return;
+                loadingNewer = false;
+                hasNewer = rows.size() == VaultFilePager.PAGE_SIZE;
+                if (rows.isEmpty()) return;
+                newestTimestamp = rows.get(0).timestamp;
+                newestId = rows.get(0).id;
+                listener.onNewerLoaded(rows);
+            });
+        });
+    }
+
+    private void loadOlder() {
+        if (loadingOlder || !hasOlder || released) return;
+        loadingOlder = true;
+        long timestamp = oldestTimestamp;
+        int id = oldestId;
+        worker.execute(() -> {
+            List<VaultMetadataRepository.FileMeta> rows =
+                    metadata.getFilesPage(type, false, timestamp, id, VaultFilePager.PAGE_SIZE);
+            mainHandler.post(() -> {
+                if (released) return;
+                loadingOlder = false;
+                hasOlder = rows.size() == VaultFilePager.PAGE_SIZE;
+                if (rows.isEmpty()) return;
+                VaultMetadataRepository.FileMeta last = rows.get(rows.size() - 1);
+                oldestTimestamp = last.timestamp;
+                oldestId = last.id;
+                listener.onOlderLoaded(rows);
+            });
+        });
+    }
+
+    /** Stops loading; pending results are dropped. */
+    public void release() {
+        released = true;
+        worker.shutdownNow();
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.securefolder.utils;
+
+import android.content.Context;
+import android.database.Cursor;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the files table, so list screens never query SQLite per row.
+ *
+ * Rows are kept keyed by system name (UUID) and id. Every insert / trash / restore /
+ * delete goes through here, which writes the row and updates the index together.
+ *
+ * The table is never loaded whole: the grids and the Trash read keyset pages
+ * (getFilesPage), and the rows of every page join the index. A row that isn't indexed
+ * yet is read on its own (one keyed query), so a large vault opens at the cost of its
+ * first page.
+ *
+ * Threading: lookups read concurrent maps and never lock, so a grid bind on the main
+ * thread never waits for SQLite. Queries and writes run outside the index monitor,
+ * which only guards publishing their results. Writes are serialized by writeLock so
+ * they publish in the order they hit the database; a read that overlapped a write
+ * doesn't publish (its rows may predate it), later lookups fetch those rows again.
+ *
+ * Notes and passwords are not covered; only vault files.
+ */
+public class VaultMetadataRepository {
+
+    /**
+     * One file row. Immutable; updates replace the entry in the index.
+     */
+    public static class FileMeta {
+        public final int id;
+        public final String type;
+        public final String systemName;
+        public final String displayName;
+        public final String mimeType;
+        public final long timestamp;
+        public final boolean deleted;
+
+        FileMeta(int id, String type, String systemName, String displayName, String mimeType,
+                 long timestamp, boolean deleted) {
+            this.id = id;
+            this.type = type;
+            this.systemName = systemName;
+            this.displayName = displayName;
+            this.mimeType = mimeType;
+            this.timestamp = timestamp;
+            this.deleted = deleted;
+        }
+
+        FileMeta withDeleted(boolean deleted) {
+            return new FileMeta(id, type, systemName, displayName, mimeType, timestamp, deleted);
+        }
+    }
+
+    private static VaultMetadataRepository instance;
+
+    private final Context appContext;
+    private final DatabaseHelper dbHelper;
+    private final Map<String, FileMeta> bySystemName = new ConcurrentHashMap<>();
+    private final Map<Integer, FileMeta> byId = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile long published = 0; // Bumped by every write's publish (under the monitor)
+
+    private VaultMetadataRepository(Context context) {
+        this.appContext = context.getApplicationContext();
+        this.dbHelper = DatabaseHelper.getInstance(appContext);
+    }
+
+    public static synchronized VaultMetadataRepository getInstance(Context context) {
+        if (instance == null) instance = new VaultMetadataRepository(context);
+        return instance;
+    }
+
+    // --- INDEX ---
+
+    /** Drops the index; rows are read again as they are needed (e.g. after a backup restore). */
+    public synchronized void invalidate() {
+        bySystemName.clear();
+        byId.clear();
+        published++; // Reads in flight hold rows of the old database
+    }
+
+    /** Rows of a getFileMetadata() / getFilesPage() cursor. */
+    private static List<FileMeta> readRows(Cursor c) {
+        int iId = c.getColumnIndexOrThrow(DatabaseHelper.COL_ID);
+        int iType = c.getColumnIndexOrThrow(DatabaseHelper.COL_TYPE);
+        int iSys = c.getColumnIndexOrThrow(DatabaseHelper.COL_SYSTEM_NAME);
+        int iName = c.getColumnIndexOrThrow(DatabaseHelper.COL_DISPLAY_NAME);
+        int iMime = c.getColumnIndexOrThrow(DatabaseHelper.COL_MIME_TYPE);
+        int iTime = c.getColumnIndexOrThrow(DatabaseHelper.COL_TIMESTAMP);
+        int iDeleted = c.getColumnIndexOrThrow(DatabaseHelper.COL_IS_DELETED);
+        List<FileMeta> rows = new ArrayList<>(c.getCount());
+        while (c.moveToNext()) {
+            rows.add(new FileMeta(c.getInt(iId), c.getString(iType), c.getString(iSys), c.getString(iName),
+                    c.getString(iMime), c.getLong(iTime), c.getInt(iDeleted) == 1));
+        }
+        return rows;
+    }
+
+    private void put(FileMeta meta) {
+        bySystemName.put(meta.systemName, meta);
+        byId.put(meta.id, meta);
+    }
+
+    /** Indexes rows read since 'seen', unless a write published meanwhile. */
+    private synchronized void publishRead(List<FileMeta> rows, long seen) {
+        if (seen != published) return;
+        for (FileMeta meta : rows) put(meta);
+    }
+
+    /** Indexes the rows a write just committed (none if it touched unindexed rows). Call holding writeLock. */
+    private synchronized void publishWrite(List<FileMeta> rows) {
+        for (FileMeta meta : rows) put(meta);
+        published++;
+    }
+
+    /** Unindexes removed rows. Call holding writeLock. */
+    private synchronized void publishRemove(List<Integer> ids, List<String> systemNames) {
+        for (int id : ids) byId.remove(id);
+        for (String systemName : systemNames) bySystemName.remove(systemName);
+        published++;
+    }
+
+    // --- LOOKUPS (memory only once a row is indexed) ---
+
+    /** The row, or null. A row not paged in yet costs one keyed query. */
+    public FileMeta get(String systemName) {
+        FileMeta meta = bySystemName.get(systemName);
+        if (meta != null) return meta;
+        long seen = published;
+        try (Cursor c = dbHelper.getFileMetadata(systemName)) {
+            return first(readRows(c), seen);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private FileMeta getById(int id) {
+        FileMeta meta = byId.get(id);
+        if (meta != null) return meta;
+        long seen = published;
+        try (Cursor c = dbHelper.getFileMetadata(id)) {
+            return first(readRows(c), seen);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private FileMeta first(List<FileMeta> rows, long seen) {
+        if (rows.isEmpty()) return null;
+        publishRead(rows, seen);
+        return rows.get(0);
+    }
+
+    /** Display name for a system name (UUID), or null if unknown. */
+    public String getDisplayName(String systemName) {
+        FileMeta meta = get(systemName);
+        return meta != null ? meta.displayName : null;
+    }
+
+    /** Row id for a system name (UUID), or -1. */
+    public int getFileId(String systemName) {
+        FileMeta meta = get(systemName);
+        return meta != null ? meta.id : -1;
+    }
+
+    /**
+     * Up to 'limit' files of one type, newest first, starting after 'after' (the last row
+     * of the previous page; null for the first page). One indexed keyset query; the rows
+     * join the index. A null 'type' pages every type, for the Trash. Call off the main thread.
+     */
+    public List<FileMeta> getFilesPage(String type, boolean deleted, FileMeta after, int limit) {
+        return getFilesPage(type, deleted, after != null ? after.timestamp : 0, after != null ? after.id : -1, limit);
+    }
+
+    /** getFilesPage() after the keyset position (timestamp, id); id -1 for the first page. */
+    public List<FileMeta> getFilesPage(String type, boolean deleted, long timestamp, int id, int limit) {
+        long seen = published;
+        try (Cursor c = dbHelper.getFilesPage(type, deleted, timestamp, id, limit)) {
+            List<FileMeta> page = readRows(c);
+            publishRead(page, seen);
+            return page;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Up to 'limit' files just before (newer than) the keyset position (timestamp, id),
+     * newest first like getFilesPage(), so they can be put in front of a loaded list.
+     * Call off the main thread.
+     */
+    public List<FileMeta> getFilesPageBefore(String type, boolean deleted, long timestamp, int id, int limit) {
+        long seen = published;
+        try (Cursor c = dbHelper.getFilesPageBefore(type, deleted, timestamp, id, limit)) {
+            List<FileMeta> page = readRows(c);
+            publishRead(page, seen);
+            Collections.reverse(page);
+            return page;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    // --- WRITES (database first, then index; serialized by writeLock) ---
+
+    public long addFile(String type, String systemName, String displayName, String originalPath) {
+        String mime = URLConnection.guessContentTypeFromName(displayName);
+        long timestamp = System.currentTimeMillis();
+        synchronized (writeLock) {
+            long id = dbHelper.addFile(type, systemName, displayName, originalPath, mime, timestamp);
+            publishWrite(id != -1
+                    ? Collections.singletonList(new FileMeta((int) id, type, systemName, displayName, mime, timestamp, false))
+                    : Collections.<FileMeta>emptyList());
+            return id;
+        }
+    }
+
+    /**
+     * addFile() for ImportEngine: the row and the journal's COMMITTED state are written
+     * in one transaction (DatabaseHelper.commitImport). 'hash' may be null.
+     * If an import of the same content committed first, this one is linked to it instead
+     * (see linkImport) and that row is returned, so the caller can drop its own copy.
+     * Returns null on failure.
+     */
+    public FileMeta commitImport(long journalId, String type, String systemName, String displayName,
+                                 String originalPath, long size, String hash) {
+        String mime = URLConnection.guessContentTypeFromName(displayName);
+        long timestamp = System.currentTimeMillis();
+        synchronized (writeLock) {
+            // Same lock as linkImport, so two identical imports can't both get a row
+            if (hash != null) {
+                FileMeta existing = link(journalId, type, size, hash);
+                if (existing != null) return existing;
+            }
+            long id = dbHelper.commitImport(journalId, type, systemName, displayName, originalPath, mime, timestamp,
+                    size, hash);
+            if (id == -1) return null;
+            FileMeta meta = new FileMeta((int) id, type, systemName, displayName, mime, timestamp, false);
+            publishWrite(Collections.singletonList(meta));
+            return meta;
+        }
+    }
+
+    /**
+     * Completes an import whose content is already in the vault (same type, size and
+     * content hash): that file is restored from Trash if needed and the journal row is
+     * marked COMMITTED, with no new row. Returns the existing file, or null if the
+     * content is new.
+     */
+    public FileMeta linkImport(long journalId, String type, long size, String hash) {
+        synchronized (writeLock) {
+            return link(journalId, type, size, hash);
+        }
+    }
+
+    /** linkImport(); the caller holds writeLock. */
+    private FileMeta link(long journalId, String type, long size, String hash) {
+        FileMeta existing;
+        try (Cursor c = dbHelper.findFileByContent(type, size, hash)) {
+            List<FileMeta> rows = readRows(c);
+            if (rows.isEmpty()) return null;
+            existing = rows.get(0);
+        }
+        dbHelper.linkImport(journalId, existing.id, existing.deleted);
+        if (existing.deleted) existing = existing.withDeleted(false);
+        publishWrite(Collections.singletonList(existing));
+        return existing;
+    }
+
+    /** Moves to / restores from Trash. */
+    public void setDeleted(int id, boolean deleted) {
+        setDeleted(Collections.singletonList(id), deleted);
+    }
+
+    /** Moves many files to / from Trash in one transaction (multi-select). */
+    public void setDeleted(List<Integer> ids, boolean deleted) {
+        synchronized (writeLock) {
+            if (ids.size() == 1) dbHelper.setFileDeleted(ids.get(0), deleted);
+            else dbHelper.setFilesDeleted(ids, deleted);
+            List<FileMeta> changed = new ArrayList<>(ids.size());
+            for (int id : ids) {
+                FileMeta meta = byId.get(id);
+                if (meta != null) changed.add(meta.withDeleted(deleted));
+            }
+            publishWrite(changed);
+        }
+    }
+
+    public void setDeleted(String systemName, boolean deleted) {
+        int id = getFileId(systemName);
+        if (id != -1) setDeleted(id, deleted);
+    }
+
+    /** Removes the row and the file's thumbnail; the caller deletes the vault file itself. */
+    public void deletePermanently(int id) {
+        FileMeta meta = getById(id); // Need the system name for the thumbnail
+        synchronized (writeLock) {
+            dbHelper.deleteFileRecordPermanently(id);
+            publishRemove(Collections.singletonList(id),
+                    meta != null ? Collections.singletonList(meta.systemName) : Collections.<String>emptyList());
+        }
+        if (meta != null) ThumbnailStore.getInstance(appContext).delete(meta.systemName);
+    }
+
+    // --- RECONCILIATION (see VaultReconciler) ---
+
+    /** Drops rows whose vault file is gone, and their thumbnails. One transaction. */
+    public void removeMissing(List<Integer> ids, List<String> systemNames) {
+        synchronized (writeLock) {
+            dbHelper.deleteFileRecords(ids);
+            publishRemove(ids, systemNames);
+        }
+        ThumbnailStore thumbnails = ThumbnailStore.getInstance(appContext);
+        for (String systemName : systemNames) thumbnails.delete(systemName);
+    }
+
+    /** Adds rows for vault files that had none, named "Recovered_<uuid prefix>". One transaction. */
+    public void addRecovered(String type, List<String> systemNames, List<Long> timestamps) {
+        List<String> displayNames = new ArrayList<>(systemNames.size());
+        for (String systemName : systemNames) displayNames.add("Recovered_" + systemName.substring(0, Math.min(8, systemName.length())));
+        synchronized (writeLock) {
+            long[] ids = dbHelper.addRecoveredFiles(type, systemNames, displayNames, timestamps);
+            List<FileMeta> added = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != -1) {
+                    added.add(new FileMeta((int) ids[i], type, systemNames.get(i), displayNames.get(i), null, timestamps.get(i), false));
+                }
+            }
+            publishWrite(added);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.securefolder.utils;
+
+import android.content.Context;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.crypto.SecretKey;
+
+/**
+ * Background migration of legacy single-IV vault files to the segmented v1 format.
+ *
+ * Each file is re-encrypted into "<name>.migrating" next to the original and only
+ * renamed over it after the legacy GCM tag has been verified, so a crash or a
+ * corrupted source never loses the original ciphertext.
+ */
+public class VaultMigrator {
+
+    private static final String[] VAULT_DIRS = {"Vault/Photos", "Vault/Videos", "Vault/Documents"};
+    private static final String TEMP_SUFFIX = ".migrating";
+
+    private static final AtomicBoolean running = new AtomicBoolean(false);
+    // Files currently being rewritten, so the bulk run and a priority request never share a temp file
+    private static final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+    // Priority requests run one at a time instead of a thread per call
+    private static final ExecutorService priority =
+            Executors.newSingleThreadExecutor(new ParallelSegmentEncryptor.WorkerFactory("VaultMigrator-File"));
+
+    /** Whether a vault file's row exists and is not in the Trash (see VaultMetadataRepository). */
+    interface Rows {
+        boolean isLive(String systemName);
+    }
+
+    /**
+     * Starts the migration on a background thread. No-op if one is already running.
+     */
+    public static void startAsync(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (!running.compareAndSet(false, true)) return;
+
+        Thread thread = new Thread(() -> {
+            try {
+                migrateAll(appContext);
+            } finally {
+                running.set(false);
+            }
+        }, "VaultMigrator");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Migrates a single file ahead of the bulk run (e.g. a video that is about to be played,
+     * so its next playback is authenticated segment by segment).
+     */
+    public static void migrateFileAsync(Context context, File file) {
+        Rows rows = rowsOf(VaultMetadataRepository.getInstance(context));
+        priority.execute(() -> {
+            SecretKey key = KeyManager.getMasterKey();
+            if (key != null && file.isFile() && !CryptoManager.isSegmented(file)) migrateFile(rows, key, file);
+        });
+    }
+
+    /**
+     * Returns the number of files migrated.
+     */
+    public static int migrateAll(Context context) {
+        Rows rows = rowsOf(VaultMetadataRepository.getInstance(context));
+        int migrated = 0;
+        for (String path : VAULT_DIRS) {
+            File dir = new File(context.getExternalFilesDir(null), path);
+            File[] files = dir.listFiles();
+            if (files == null) continue;
+
+            for (File file : files) {
+                // Stop if the vault was locked mid-run
+                SecretKey key = KeyManager.getMasterKey();
+                if (key == null) return migrated;
+
+                if (file.getName().endsWith(TEMP_SUFFIX)) {
+                    // Leftover from an interrupted run (unless a priority migration owns it)
+                    String original = file.getAbsolutePath();
+                    original = original.substring(0, original.length() - TEMP_SUFFIX.length());
+                    if (!inProgress.contains(original)) file.delete();
+                    continue;
+                }
+                if (!file.isFile() || CryptoManager.isSegmented(file)) continue;
+
+                if (migrateFile(rows, key, file)) migrated++;
+            }
+        }
+        return migrated;
+    }
+
+    private static Rows rowsOf(VaultMetadataRepository metadata) {
+        return systemName -> {
+            VaultMetadataRepository.FileMeta meta = metadata.get(systemName);
+            return meta != null && !meta.deleted;
+        };
+    }
+
+    static boolean migrateFile(Rows rows, SecretKey key, File file) {
+        String path = file.getAbsolutePath();
+        if (!inProgress.add(path)) return false;
+        try {
+            return rewrite(rows, key, file);
+        } finally {
+            inProgress.remove(path);
+        }
+    }
+
+    private static boolean rewrite(Rows rows, SecretKey key, File file) {
+        // Re-check under the in-progress guard: another run may have just finished this file
+        if (CryptoManager.isSegmented(file) || !isLive(rows, file)) return false;
+
+        File temp = new File(file.getParentFile(), file.getName() + TEMP_SUFFIX);
+        try (SegmentedOutputStream out = new SegmentedOutputStream(new FileOutputStream(temp), key)) {
+            // Streams in constant memory (multi-GB videos); throws before the rename if the tag does not verify
+            CryptoManager.decryptLegacy(key, file, out);
+        } catch (Exception e) {
+            e.printStackTrace();
+            temp.delete();
+            return false;
+        }
+
+        // The user may have trashed or deleted the file meanwhile; don't bring it back
+        if (!isLive(rows, file) || !temp.renameTo(file)) {
+            temp.delete();
+            return false;
+        }
+        return true;
+    }
+
+    /** True if the file is still on disk and its row exists and is not in the Trash. */
+    private static boolean isLive(Rows rows, File file) {
+        return file.exists() && rows.isLive(file.getName());
+    }
+}
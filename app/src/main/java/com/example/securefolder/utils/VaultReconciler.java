@@ -0,0 +1,134 @@
+package com.example.securefolder.utils;
+
+import android.content.Context;
+import android.database.Cursor;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the files table and the vault folders in step, so listings can trust the
+ * table and never stat files one by one.
+ *
+ * Per type, one query for every row's system name and one directory listing are
+ * compared in memory:
+ *  - missing: a row whose vault file is gone. The row (and thumbnail) is removed.
+ *  - orphan: a vault file with no row (e.g. the process died between writing the
+ *    ciphertext and inserting the row). It gets a "Recovered_..." row so it shows up.
+ * Fixes are applied in transactions of BATCH_SIZE rows.
+ *
+ * Rows are read before the folder is listed: a row is only inserted once its file is
+ * complete, so every row read has a file in the listing unless it was really deleted.
+ * Files newer than ORPHAN_GRACE_MS may still be waiting for their row and are left alone.
+ *
+ * Interrupted imports are settled first (ImportEngine.resume()): a file its journal
+ * still owns gets its own row rather than a "Recovered_..." one.
+ */
+public class VaultReconciler {
+
+    private static final String[][] VAULT_DIRS = {
+            {"PHOTO", "Vault/Photos"}, {"VIDEO", "Vault/Videos"}, {"DOCUMENT", "Vault/Documents"}};
+    private static final int BATCH_SIZE = 500;
+    private static final long ORPHAN_GRACE_MS = 10 * 60 * 1000L;
+
+    private static final AtomicBoolean running = new AtomicBoolean(false);
+
+    /**
+     * Starts a pass on a background thread. No-op if one is already running.
+     */
+    public static void startAsync(Context context) {
+        Context appContext = context.getApplicationContext();
+        if (!running.compareAndSet(false, true)) return;
+
+        Thread thread = new Thread(() -> {
+            try {
+                reconcileAll(appContext);
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                running.set(false);
+            }
+        }, "VaultReconciler");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Returns the number of rows removed plus rows recovered.
+     */
+    public static int reconcileAll(Context context) {
+        VaultMetadataRepository metadata = VaultMetadataRepository.getInstance(context);
+        DatabaseHelper dbHelper = DatabaseHelper.getInstance(context);
+        File root = context.getExternalFilesDir(null);
+        if (root == null) return 0; // Storage unavailable: nothing can be trusted
+
+        ImportEngine.getInstance(context).resume();
+
+        int fixed = 0;
+        for (String[] entry : VAULT_DIRS) {
+            fixed += reconcile(metadata, dbHelper, entry[0], new File(root, entry[1]));
+        }
+        return fixed;
+    }
+
+    private static int reconcile(VaultMetadataRepository metadata, DatabaseHelper dbHelper, String type, File dir) {
+        // 1. Rows first (see class comment)
+        Map<String, Integer> rows = new HashMap<>();
+        try (Cursor c = dbHelper.getFileNames(type)) {
+            while (c.moveToNext()) rows.put(c.getString(1), c.getInt(0));
+        }
+
+        // 2. One directory listing; names only, no per-file stat
+        String[] names = dir.list();
+        if (names == null) return 0; // Folder missing or unreadable: don't conclude anything
+        Set<String> onDisk = new HashSet<>();
+        for (String name : names) {
+            if (name.indexOf('.') == -1) onDisk.add(name); // Skips ".migrating" and other temp files
+        }
+
+        // 3. Rows without a file
+        int fixed = 0;
+        List<Integer> missingIds = new ArrayList<>();
+        List<String> missingNames = new ArrayList<>();
+        for (Map.Entry<String, Integer> row : rows.entrySet()) {
+            if (onDisk.contains(row.getKey())) continue;
+            missingIds.add(row.getValue());
+            missingNames.add(row.getKey());
+            fixed++;
+            if (missingIds.size() == BATCH_SIZE) {
+                metadata.removeMissing(missingIds, missingNames);
+                missingIds = new ArrayList<>();
+                missingNames = new ArrayList<>();
+            }
+        }
+        if (!missingIds.isEmpty()) metadata.removeMissing(missingIds, missingNames);
+
+        // 4. Files without a row (only these few get a stat, for the grace period)
+        long cutoff = System.currentTimeMillis() - ORPHAN_GRACE_MS;
+        List<String> orphanNames = new ArrayList<>();
+        List<Long> orphanTimes = new ArrayList<>();
+        for (String name : onDisk) {
+            if (rows.containsKey(name)) continue;
+            long modified = new File(dir, name).lastModified();
+            if (modified == 0 || modified > cutoff) continue; // Import may still be inserting its row
+            orphanNames.add(name);
+            orphanTimes.add(modified);
+            if (orphanNames.size() == BATCH_SIZE) {
+                metadata.addRecovered(type, orphanNames, orphanTimes);
+                fixed += orphanNames.size();
+                orphanNames = new ArrayList<>();
+                orphanTimes = new ArrayList<>();
+            }
+        }
+        if (!orphanNames.isEmpty()) {
+            metadata.addRecovered(type, orphanNames, orphanTimes);
+            fixed += orphanNames.size();
+        }
+        return fixed;
+    }
+}
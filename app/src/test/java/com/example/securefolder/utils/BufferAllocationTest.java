@@ -0,0 +1,93 @@
+package com.example.securefolder.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+
+/**
+ * Checks that the pooled crypto paths don't allocate per-chunk buffers in steady state.
+ *
+ * AES-GCM needs a fresh Cipher.init per segment, and the JCE allocates a few small
+ * objects for that, so the bound is "far below one chunk", not literally zero bytes.
+ */
+public class BufferAllocationTest {
+
+    private static final int SEGMENTS = 256;
+    private static final long PER_SEGMENT_LIMIT = 2048; // A 64 KiB chunk allocation would blow this
+
+    private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+
+    @Test
+    public void poolReusesAndWipesBuffers() {
+        byte[] first = BufferPool.acquire(5000);
+        assertEquals(8192, first.length);
+        first[0] = 42;
+        BufferPool.release(first);
+
+        byte[] second = BufferPool.acquire(8000);
+        assertSame(first, second);
+        assertEquals(0, second[0]);
+        BufferPool.release(second);
+    }
+
+    @Test
+    public void encryptHasNoPerChunkAllocations() throws Exception {
+        byte[] chunk = new byte[SegmentedCrypto.SEGMENT_SIZE];
+        SegmentedOutputStream out = new SegmentedOutputStream(new NullOutputStream(), key);
+
+        // Warm up JIT and the JCE before measuring
+        for (int i = 0; i < 64; i++) out.write(chunk, 0, chunk.length);
+
+        long before = allocatedBytes();
+        for (int i = 0; i < SEGMENTS; i++) out.write(chunk, 0, chunk.length);
+        long perSegment = (allocatedBytes() - before) / SEGMENTS;
+        out.close();
+
+        assertTrue("allocated " + perSegment + " bytes per segment", perSegment < PER_SEGMENT_LIMIT);
+    }
+
+    @Test
+    public void seekableReadHasNoPerChunkAllocations() throws Exception {
+        File file = File.createTempFile("alloc", ".v1");
+        try {
+            byte[] chunk = new byte[SegmentedCrypto.SEGMENT_SIZE];
+            try (OutputStream out = new SegmentedOutputStream(new FileOutputStream(file), key)) {
+                for (int i = 0; i < SEGMENTS + 64; i++) out.write(chunk, 0, chunk.length);
+            }
+
+            try (SeekableVaultFile vault = SeekableVaultFile.open(file, key)) {
+                long position = 0;
+                for (int i = 0; i < 64; i++) position += vault.read(position, chunk, 0, chunk.length);
+
+                long before = allocatedBytes();
+                for (int i = 0; i < SEGMENTS; i++) position += vault.read(position, chunk, 0, chunk.length);
+                long perSegment = (allocatedBytes() - before) / SEGMENTS;
+
+                assertTrue("allocated " + perSegment + " bytes per segment", perSegment < PER_SEGMENT_LIMIT);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] b, int off, int len) {}
+    }
+}
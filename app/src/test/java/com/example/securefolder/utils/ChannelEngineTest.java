@@ -0,0 +1,81 @@
+package com.example.securefolder.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+
+/**
+ * Files written by the FileChannel engine (mmap + direct buffers) read back through
+ * both the channel and the stream paths. Channel vs. stream throughput is in the
+ * :benchmark module (ChannelEngineBenchmark).
+ */
+public class ChannelEngineTest {
+
+    private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+
+    @Test
+    public void roundTripAroundMmapThreshold() throws Exception {
+        // Just below / above the mapping threshold, and not segment aligned
+        long[] lengths = {0, 100, ChannelSource.MMAP_THRESHOLD - 1, ChannelSource.MMAP_THRESHOLD + 12345};
+        Random random = new Random(3);
+        ParallelSegmentEncryptor encryptor = new ParallelSegmentEncryptor(2);
+        ParallelSegmentDecryptor decryptor = new ParallelSegmentDecryptor(2);
+        File plain = File.createTempFile("engine", ".in");
+        File enc = File.createTempFile("engine", ".v1");
+        File out = File.createTempFile("engine", ".out");
+        try {
+            for (long length : lengths) {
+                byte[] data = new byte[(int) length];
+                random.nextBytes(data);
+                Files.write(plain.toPath(), data);
+
+                encryptChannel(encryptor, plain, enc);
+                assertEquals(SegmentedCrypto.HEADER_SIZE + length
+                        + Math.max(1, (length + SegmentedCrypto.SEGMENT_SIZE - 1) / SegmentedCrypto.SEGMENT_SIZE)
+                        * SegmentedCrypto.TAG_SIZE, enc.length());
+
+                // Channel-encrypted files must read back through the stream path too
+                try (FileInputStream in = new FileInputStream(enc);
+                     FileOutputStream os = new FileOutputStream(out)) {
+                    byte[] head = new byte[SegmentedCrypto.HEADER_SIZE];
+                    SegmentedCrypto.readFully(in, head, 0, head.length);
+                    SegmentedCrypto.decrypt(key, SegmentedCrypto.Header.parse(head), in, os);
+                }
+                assertArrayEquals("stream, length " + length, data, Files.readAllBytes(out.toPath()));
+
+                decryptChannel(decryptor, enc, out);
+                assertArrayEquals("channel, length " + length, data, Files.readAllBytes(out.toPath()));
+            }
+        } finally {
+            encryptor.shutdown();
+            decryptor.shutdown();
+            plain.delete();
+            enc.delete();
+            out.delete();
+        }
+    }
+
+    private void encryptChannel(ParallelSegmentEncryptor encryptor, File in, File out) throws Exception {
+        try (RandomAccessFile src = new RandomAccessFile(in, "r");
+             RandomAccessFile dst = new RandomAccessFile(out, "rw")) {
+            encryptor.encrypt(key, src.getChannel(), dst.getChannel());
+        }
+    }
+
+    private void decryptChannel(ParallelSegmentDecryptor decryptor, File in, File out) throws Exception {
+        try (RandomAccessFile src = new RandomAccessFile(in, "r");
+             RandomAccessFile dst = new RandomAccessFile(out, "rw")) {
+            assertTrue(decryptor.decrypt(key, src.getChannel(), dst.getChannel()));
+        }
+    }
+}
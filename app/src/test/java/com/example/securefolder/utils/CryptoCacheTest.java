@@ -0,0 +1,38 @@
+package com.example.securefolder.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+
+/**
+ * CryptoCache hands out the same Cipher and file key until invalidated. The cost
+ * it saves is measured in the :benchmark module (CipherCacheBenchmark).
+ */
+public class CryptoCacheTest {
+
+    private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+
+    @Test
+    public void cachedCipherIsReusedUntilInvalidated() throws Exception {
+        Cipher first = CryptoCache.cipher("AES/GCM/NoPadding");
+        assertSame(first, CryptoCache.cipher("AES/GCM/NoPadding"));
+
+        CryptoCache.invalidate();
+        assertNotSame(first, CryptoCache.cipher("AES/GCM/NoPadding"));
+    }
+
+    @Test
+    public void cachedFileKeyMatchesDerivedKey() throws Exception {
+        SegmentedCrypto.Header header = SegmentedCrypto.Header.newRandom(SegmentedCrypto.SEGMENT_SIZE);
+        SecretKey derived = SegmentedCrypto.deriveFileKey(key, header);
+        assertSame(derived, SegmentedCrypto.deriveFileKey(key, header));
+
+        CryptoCache.invalidate();
+        assertArrayEquals(derived.getEncoded(), SegmentedCrypto.deriveFileKey(key, header).getEncoded());
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.securefolder.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.Test;
+
+/**
+ * DatabaseSchema's migrations and listing SQL, run on sqlite-jdbc: migrations keep
+ * rows, keyset pages match OFFSET pages, and the queries are served from their
+ * indexes. Query time vs. row count is in the :benchmark module (QueryScalingBenchmark).
+ */
+public class DatabaseSchemaTest {
+
+    private static final int PAGE = 120;
+    private static final String[] TYPES = {"PHOTO", "VIDEO", "DOCUMENT"};
+
+    @Test
+    public void listingPagesAreServedFromTheIndex() throws Exception {
+        try (Connection db = openV1(1_000)) {
+            migrate(db);
+            String first = plan(db, DatabaseSchema.FIRST_PAGE, "PHOTO", "0", "120");
+            String next = plan(db, DatabaseSchema.NEXT_PAGE, "PHOTO", "0", "1700000000000", "500", "120");
+            for (String plan : Arrays.asList(first, next)) {
+                assertTrue(plan, plan.contains("COVERING INDEX " + DatabaseSchema.INDEX_LISTING));
+                assertFalse(plan, plan.contains("TEMP B-TREE"));
+            }
+            assertTrue(next, next.contains("timestamp<?")); // Seeks to the key instead of scanning
+        }
+    }
+
+    @Test
+    public void trashPagesAreServedFromTheTrashIndex() throws Exception {
+        try (Connection db = openV1(1_000)) {
+            migrate(db);
+            String first = plan(db, DatabaseSchema.ANY_TYPE_FIRST_PAGE, "1", "120");
+            String next = plan(db, DatabaseSchema.ANY_TYPE_NEXT_PAGE, "1", "1700000000000", "500", "120");
+            for (String plan : Arrays.asList(first, next)) {
+                assertTrue(plan, plan.contains("INDEX " + DatabaseSchema.INDEX_TRASH));
+                assertFalse(plan, plan.contains("TEMP B-TREE"));
+            }
+        }
+    }
+
+    @Test
+    public void duplicateLookupsAreServedFromTheContentIndex() throws Exception {
+        try (Connection db = openV1(1_000)) {
+            migrate(db);
+            String sizeProbe = plan(db, DatabaseSchema.HAS_CONTENT_SIZE, "PHOTO", "1024");
+            String find = plan(db, DatabaseSchema.FIND_CONTENT, "PHOTO", "1024", "00ff");
+            assertTrue(sizeProbe, sizeProbe.contains("COVERING INDEX " + DatabaseSchema.INDEX_CONTENT));
+            assertTrue(find, find.contains("INDEX " + DatabaseSchema.INDEX_CONTENT + " (type=? AND content_size=? AND content_hash=?)"));
+        }
+    }
+
+    @Test
+    public void migrationKeepsRows() throws Exception {
+        try (Connection db = openV1(1_000)) {
+            long before = count(db);
+            migrate(db);
+            assertEquals(before, count(db));
+        }
+    }
+
+    @Test
+    public void keysetPagesMatchOffsetPages() throws Exception {
+        try (Connection db = openV1(1_000)) {
+            migrate(db);
+            long[] last = null;
+            int offset = 0;
+            while (true) {
+                String[] args = last == null
+                        ? new String[]{"PHOTO", "0", String.valueOf(PAGE)}
+                        : new String[]{"PHOTO", "0", String.valueOf(last[0]), String.valueOf(last[1]), String.valueOf(PAGE)};
+                long[][] keyset = page(db, last == null ? DatabaseSchema.FIRST_PAGE : DatabaseSchema.NEXT_PAGE, args);
+                long[][] expected = page(db, "SELECT " + DatabaseSchema.LISTING_COLUMNS + " FROM files WHERE type=? AND is_deleted=?"
+                        + " ORDER BY timestamp DESC, id DESC LIMIT ? OFFSET " + offset, new String[]{"PHOTO", "0", String.valueOf(PAGE)});
+                assertTrue(Arrays.deepEquals(expected, keyset));
+                if (keyset.length < PAGE) break;
+                last = keyset[keyset.length - 1];
+                offset += PAGE;
+            }
+        }
+    }
+
+    // --- HELPERS ---
+
+    /** Version 1 database with 'rows' files: mixed types, 5% trashed, clashing timestamps. */
+    private static Connection openV1(int rows) throws Exception {
+        Connection db = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement st = db.createStatement()) {
+            st.execute(DatabaseSchema.CREATE_FILES_V1);
+        }
+        db.setAutoCommit(false);
+        Random random = new Random(rows);
+        try (PreparedStatement insert = db.prepareStatement("INSERT INTO files (type, system_name, display_name,"
+                + " original_path, mime_type, timestamp, is_deleted) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setString(1, TYPES[i % TYPES.length]);
+                insert.setString(2, UUID.randomUUID().toString());
+                insert.setString(3, "IMG_" + i + ".jpg");
+                insert.setString(4, "/storage/emulated/0/DCIM/Camera");
+                insert.setString(5, "image/jpeg");
+                insert.setLong(6, 1_600_000_000_000L + random.nextInt(rows) * 1000L); // Some equal timestamps
+                insert.setInt(7, i % 20 == 0 ? 1 : 0);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        db.commit();
+        db.setAutoCommit(true);
+        return db;
+    }
+
+    private static void migrate(Connection db) throws Exception {
+        try (Statement st = db.createStatement()) {
+            for (int version = 1; version < DatabaseSchema.VERSION; version++) {
+                for (String statement : DatabaseSchema.migration(version)) st.execute(statement);
+            }
+        }
+    }
+
+    /** Rows as (timestamp, id); args bound as strings, like SQLiteDatabase.rawQuery. */
+    private static long[][] page(Connection db, String sql, String[] args) throws Exception {
+        try (PreparedStatement query = db.prepareStatement(sql)) {
+            for (int i = 0; i < args.length; i++) query.setString(i + 1, args[i]);
+            List<long[]> rows = new ArrayList<>();
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) rows.add(new long[]{rs.getLong("timestamp"), rs.getLong("id")});
+            }
+            return rows.toArray(new long[0][]);
+        }
+    }
+
+    private static String plan(Connection db, String sql, String... args) throws Exception {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement query = db.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            for (int i = 0; i < args.length; i++) query.setString(i + 1, args[i]);
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) plan.append(rs.getString("detail")).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+
+    private static long count(Connection db) throws Exception {
+        try (Statement st = db.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM files")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
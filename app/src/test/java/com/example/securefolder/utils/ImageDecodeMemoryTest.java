@@ -0,0 +1,93 @@
+package com.example.securefolder.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.management.ManagementFactory;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Heap cost of opening one photo in the viewer through the streaming
+ * SampledBitmapDecoder path, and the sample sizes it picks.
+ *
+ * BitmapFactory doesn't run on the JVM, so the decoder is modelled as what it does to
+ * the heap: the bytes allocated on this thread while the decoder's 16 KiB reads pull
+ * the whole file must stay well under the file size. Peak heap per decoded image, vs.
+ * the old byte[] path, is in the :benchmark module (ImageDecodeBenchmark).
+ */
+public class ImageDecodeMemoryTest {
+
+    private static final long SIZE = 16 * 1024 * 1024; // Roughly a 50 MP JPEG
+    private static final int DECODER_READ = 16 * 1024; // BitmapFactory's stream buffer
+
+    // 50 MP sensor, shown on a 1080 x 2340 phone screen
+    private static final int IMAGE_WIDTH = 8160;
+    private static final int IMAGE_HEIGHT = 6120;
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 2340;
+
+    private static SecretKey key;
+    private static File vaultFile;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        key = new SecretKeySpec(new byte[32], "AES");
+        vaultFile = File.createTempFile("decode", ".v1");
+        try (FileOutputStream out = new FileOutputStream(vaultFile)) {
+            SegmentedCrypto.encrypt(key, new PatternInputStream(SIZE), out);
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        if (vaultFile != null) vaultFile.delete();
+    }
+
+    @Test
+    public void sampleSizeFitsTarget() {
+        assertEquals(4, SampledBitmapDecoder.sampleSize(IMAGE_WIDTH, IMAGE_HEIGHT, SCREEN_WIDTH, SCREEN_HEIGHT));
+        assertEquals(2, SampledBitmapDecoder.sampleSize(2160, 4680, 1080, 2340)); // Exactly 2x the screen
+        assertEquals(1, SampledBitmapDecoder.sampleSize(800, 600, SCREEN_WIDTH, SCREEN_HEIGHT)); // Never upscale
+        assertEquals(8, SampledBitmapDecoder.sampleSize(4000, 3000, 256, 256)); // Thumbnail long edge
+
+        // The decoded image still covers the screen once fitted
+        int sample = SampledBitmapDecoder.sampleSize(IMAGE_WIDTH, IMAGE_HEIGHT, SCREEN_WIDTH, SCREEN_HEIGHT);
+        double fit = Math.min((double) SCREEN_WIDTH / IMAGE_WIDTH, (double) SCREEN_HEIGHT / IMAGE_HEIGHT);
+        assertTrue(IMAGE_WIDTH / sample >= IMAGE_WIDTH * fit);
+    }
+
+    @Test
+    public void streamingDecodeStaysUnderBound() throws Exception {
+        streamThrough(); // Warm-up so JIT / JCE setup isn't charged
+
+        long before = allocatedBytes();
+        long streamed = streamThrough();
+        long streamAllocated = allocatedBytes() - before;
+        assertEquals(SIZE, streamed);
+
+        // Streaming holds one segment of plaintext, not the file
+        assertTrue("streaming allocated " + streamAllocated + " bytes", streamAllocated < SIZE / 8);
+    }
+
+    /** Reads the file the way BitmapFactory.decodeStream pulls from VaultFileInputStream. */
+    private long streamThrough() throws Exception {
+        byte[] buffer = new byte[DECODER_READ];
+        long total = 0;
+        try (VaultFileInputStream in = VaultFileInputStream.open(vaultFile, key)) {
+            int read;
+            while ((read = in.read(buffer, 0, buffer.length)) != -1) total += read;
+        }
+        return total;
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
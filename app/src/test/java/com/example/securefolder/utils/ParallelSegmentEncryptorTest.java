@@ -0,0 +1,81 @@
+package com.example.securefolder.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.Test;
+
+/**
+ * ParallelSegmentEncryptor output round-trips through the sequential and parallel
+ * decrypt paths. Throughput by worker count is in the :benchmark module
+ * (ParallelEncryptBenchmark).
+ */
+public class ParallelSegmentEncryptorTest {
+
+    private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+
+    @Test
+    public void outputDecryptsLikeSequentialFormat() throws Exception {
+        // Odd sizes around segment boundaries, including empty input
+        int seg = 1024;
+        int[] lengths = {0, 1, seg - 1, seg, seg + 1, 7 * seg, 7 * seg + 13};
+        Random random = new Random(7);
+        ParallelSegmentEncryptor encryptor = new ParallelSegmentEncryptor(4);
+        ParallelSegmentDecryptor decryptor = new ParallelSegmentDecryptor(4);
+        try {
+            for (int length : lengths) {
+                byte[] plain = new byte[length];
+                random.nextBytes(plain);
+
+                File file = File.createTempFile("parallel", ".v1");
+                try {
+                    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                        encryptor.encrypt(key, new ByteArrayInputStream(plain), raf.getChannel(), seg);
+                    }
+                    assertEquals(SegmentedCrypto.HEADER_SIZE + length
+                            + Math.max(1, (length + seg - 1) / seg) * SegmentedCrypto.TAG_SIZE, file.length());
+                    assertArrayEquals("length " + length, plain, decrypt(file));
+                    assertArrayEquals("parallel, length " + length, plain, decryptParallel(decryptor, file));
+                } finally {
+                    file.delete();
+                }
+            }
+        } finally {
+            encryptor.shutdown();
+            decryptor.shutdown();
+        }
+    }
+
+    private byte[] decryptParallel(ParallelSegmentDecryptor decryptor, File file) throws Exception {
+        File out = File.createTempFile("parallel", ".plain");
+        try {
+            try (RandomAccessFile src = new RandomAccessFile(file, "r");
+                 RandomAccessFile dst = new RandomAccessFile(out, "rw")) {
+                assertTrue(decryptor.decrypt(key, src.getChannel(), dst.getChannel()));
+            }
+            return Files.readAllBytes(out.toPath());
+        } finally {
+            out.delete();
+        }
+    }
+
+    private byte[] decrypt(File file) throws Exception {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] head = new byte[SegmentedCrypto.HEADER_SIZE];
+            SegmentedCrypto.readFully(in, head, 0, head.length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SegmentedCrypto.decrypt(key, SegmentedCrypto.Header.parse(head), in, out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.securefolder.utils;
+
+import java.io.InputStream;
+
+/**
+ * Deterministic plaintext for the crypto tests, so reads at any offset can be checked
+ * without storing it.
+ */
+class PatternInputStream extends InputStream {
+    private final long size;
+    private long position = 0;
+
+    PatternInputStream(long size) {
+        this.size = size;
+    }
+
+    static byte byteAt(long position) {
+        return (byte) (position * 31 + (position >>> 13));
+    }
+
+    @Override
+    public int read() {
+        return position < size ? byteAt(position++) & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (position >= size) return -1;
+        int n = (int) Math.min(len, size - position);
+        for (int i = 0; i < n; i++) b[off + i] = byteAt(position++);
+        return n;
+    }
+}
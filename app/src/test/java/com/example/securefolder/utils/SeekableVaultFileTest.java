@@ -0,0 +1,100 @@
+package com.example.securefolder.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Reads at any offset of a SeekableVaultFile return the bytes a sequential decrypt
+ * would, for segmented and legacy files. Timings are in the :benchmark module
+ * (SeekBenchmark).
+ */
+public class SeekableVaultFileTest {
+
+    private static final long SIZE = 4 * 1024 * 1024 + 123; // Many segments and a partial last one
+    private static final int READ_SIZE = 4096;
+    private static final double[] OFFSETS = {0.0, 0.25, 0.5, 0.75, 0.99};
+
+    private static SecretKey key;
+    private static File segmentedFile;
+    private static File legacyFile;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        byte[] raw = new byte[32];
+        new SecureRandom().nextBytes(raw);
+        key = new SecretKeySpec(raw, "AES");
+
+        segmentedFile = File.createTempFile("seek", ".v1");
+        try (OutputStream out = new FileOutputStream(segmentedFile)) {
+            SegmentedCrypto.encrypt(key, new PatternInputStream(SIZE), out);
+        }
+
+        // Legacy layout: IV (12) | single GCM stream | tag (16)
+        legacyFile = File.createTempFile("seek", ".legacy");
+        try (OutputStream out = new FileOutputStream(legacyFile)) {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key);
+            out.write(cipher.getIV());
+            InputStream in = new PatternInputStream(SIZE);
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) out.write(cipher.update(buffer, 0, read));
+            out.write(cipher.doFinal());
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        segmentedFile.delete();
+        legacyFile.delete();
+    }
+
+    @Test
+    public void segmentedSeeksMatchSequentialBytes() throws Exception {
+        for (double fraction : OFFSETS) assertReadAt(segmentedFile, (long) (SIZE * fraction));
+    }
+
+    @Test
+    public void legacySeeksMatchSequentialBytes() throws Exception {
+        for (double fraction : OFFSETS) assertReadAt(legacyFile, (long) (SIZE * fraction));
+    }
+
+    @Test
+    public void readAcrossTheEndIsShort() throws Exception {
+        assertReadAt(segmentedFile, SIZE - 10);
+        assertReadAt(legacyFile, SIZE - 10);
+    }
+
+    private void assertReadAt(File file, long offset) throws Exception {
+        byte[] buffer = new byte[READ_SIZE];
+        try (SeekableVaultFile vault = SeekableVaultFile.open(file, key)) {
+            assertEquals(SIZE, vault.length());
+            // A read may stop at a segment end, like a sequential one
+            int read = 0;
+            while (read < buffer.length) {
+                int n = vault.read(offset + read, buffer, read, buffer.length - read);
+                if (n == -1) break;
+                read += n;
+            }
+            assertEquals(Math.min(READ_SIZE, SIZE - offset), read);
+            verify(offset, buffer, read);
+        }
+    }
+
+    private static void verify(long offset, byte[] buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            assertEquals(PatternInputStream.byteAt(offset + i), buffer[i]);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.securefolder.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A v1 file whose header or segments were changed, swapped or cut off is rejected by
+ * both the stream decrypt and SeekableVaultFile, instead of yielding plaintext.
+ */
+public class SegmentedCryptoTest {
+
+    private static final int SEGMENTS = 4; // Plaintext ends exactly on a segment boundary
+
+    private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+    private File file;
+    private int encSegment;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("tamper", ".v1");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            SegmentedCrypto.encrypt(key, new PatternInputStream((long) SEGMENTS * SegmentedCrypto.SEGMENT_SIZE), out);
+        }
+        encSegment = SegmentedCrypto.SEGMENT_SIZE + SegmentedCrypto.TAG_SIZE;
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void untouchedFileDecrypts() throws Exception {
+        assertEquals((long) SEGMENTS * SegmentedCrypto.SEGMENT_SIZE, decryptStream().length);
+    }
+
+    @Test
+    public void flippedCiphertextByteIsRejected() throws Exception {
+        flip(SegmentedCrypto.HEADER_SIZE + encSegment + 100);
+        assertRejected();
+    }
+
+    @Test
+    public void flippedTagByteIsRejected() throws Exception {
+        flip(SegmentedCrypto.HEADER_SIZE + 2L * encSegment - 1);
+        assertRejected();
+    }
+
+    @Test
+    public void changedHeaderIsRejected() throws Exception {
+        flip(SegmentedCrypto.HEADER_SIZE - 1); // Last nonce prefix byte; the header is every segment's AAD
+        assertRejected();
+    }
+
+    @Test
+    public void swappedSegmentsAreRejected() throws Exception {
+        byte[] data = Files.readAllBytes(file.toPath());
+        int first = SegmentedCrypto.HEADER_SIZE;
+        int second = first + encSegment;
+        byte[] segment = Arrays.copyOfRange(data, first, second);
+        System.arraycopy(data, second, data, first, encSegment);
+        System.arraycopy(segment, 0, data, second, encSegment);
+        Files.write(file.toPath(), data);
+        assertRejected();
+    }
+
+    @Test
+    public void truncationAtSegmentBoundaryIsRejected() throws Exception {
+        // Whole segments only: each remaining one still verifies on its own, but the new
+        // last one was sealed without the last-segment flag
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(SegmentedCrypto.HEADER_SIZE + 2L * encSegment);
+        }
+        assertRejected();
+    }
+
+    @Test
+    public void truncationInsideSegmentIsRejected() throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(SegmentedCrypto.HEADER_SIZE + 2L * encSegment + 1000);
+        }
+        assertRejected();
+    }
+
+    private void assertRejected() throws Exception {
+        try {
+            decryptStream();
+            fail("stream decrypt accepted a modified file");
+        } catch (Exception expected) {
+            // Tag mismatch or truncation
+        }
+        try (SeekableVaultFile vault = SeekableVaultFile.open(file, key)) {
+            byte[] buffer = new byte[SegmentedCrypto.SEGMENT_SIZE];
+            long position = 0;
+            int read;
+            while ((read = vault.read(position, buffer, 0, buffer.length)) != -1) position += read;
+            fail("SeekableVaultFile returned all " + position + " bytes of a modified file");
+        } catch (IOException expected) {
+            // Tag mismatch or truncation
+        }
+    }
+
+    private byte[] decryptStream() throws Exception {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] head = new byte[SegmentedCrypto.HEADER_SIZE];
+            SegmentedCrypto.readFully(in, head, 0, head.length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SegmentedCrypto.decrypt(key, SegmentedCrypto.Header.parse(head), in, out);
+            return out.toByteArray();
+        }
+    }
+
+    private void flip(long offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            int b = raf.read();
+            raf.seek(offset);
+            raf.write(b ^ 0x01);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.securefolder.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * VaultMigrator.migrateFile: a legacy single-IV file becomes a v1 file with the same
+ * plaintext; trashed files and files that fail to verify are left exactly as they were.
+ */
+public class VaultMigratorTest {
+
+    private static final int SIZE = 3 * SegmentedCrypto.SEGMENT_SIZE + 123;
+
+    private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+    private File dir;
+    private File file;
+    private byte[] plain;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("migrate").toFile();
+        file = new File(dir, "4f1c2a9e-legacy");
+        plain = new byte[SIZE];
+        new PatternInputStream(SIZE).read(plain, 0, SIZE);
+
+        // Legacy layout: IV (12) | single GCM stream | tag (16)
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(cipher.getIV());
+            out.write(cipher.doFinal(plain));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void legacyFileBecomesSegmented() throws Exception {
+        assertTrue(VaultMigrator.migrateFile(name -> true, key, file));
+
+        assertTrue(CryptoManager.isSegmented(file));
+        assertArrayEquals(plain, decrypt(file));
+        assertOnlyOriginalLeft();
+    }
+
+    @Test
+    public void trashedFileIsSkipped() throws Exception {
+        byte[] before = Files.readAllBytes(file.toPath());
+        assertFalse(VaultMigrator.migrateFile(name -> false, key, file));
+
+        assertArrayEquals(before, Files.readAllBytes(file.toPath()));
+        assertOnlyOriginalLeft();
+    }
+
+    @Test
+    public void fileTrashedDuringRewriteIsNotReplaced() throws Exception {
+        byte[] before = Files.readAllBytes(file.toPath());
+        int[] checks = {0};
+        // Live when the rewrite starts, trashed by the time it would rename
+        assertFalse(VaultMigrator.migrateFile(name -> checks[0]++ == 0, key, file));
+
+        assertArrayEquals(before, Files.readAllBytes(file.toPath()));
+        assertOnlyOriginalLeft();
+    }
+
+    @Test
+    public void tamperedFileIsLeftIntact() throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(SIZE / 2);
+            int b = raf.read();
+            raf.seek(SIZE / 2);
+            raf.write(b ^ 0x01);
+        }
+        byte[] before = Files.readAllBytes(file.toPath());
+        assertFalse(VaultMigrator.migrateFile(name -> true, key, file));
+
+        assertFalse(CryptoManager.isSegmented(file));
+        assertArrayEquals(before, Files.readAllBytes(file.toPath()));
+        assertOnlyOriginalLeft();
+    }
+
+    private void assertOnlyOriginalLeft() {
+        String[] names = dir.list();
+        assertTrue(names != null && names.length == 1 && names[0].equals(file.getName()));
+    }
+
+    private byte[] decrypt(File v1) throws Exception {
+        try (FileInputStream in = new FileInputStream(v1)) {
+            byte[] head = new byte[SegmentedCrypto.HEADER_SIZE];
+            SegmentedCrypto.readFully(in, head, 0, head.length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SegmentedCrypto.decrypt(key, SegmentedCrypto.Header.parse(head), in, out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.securefolder.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FileChannel engine (mmap + direct buffers) vs. the stream path, file to file.
+ * Single worker, so only the I/O strategy differs. Plus the BackupHelper.copyFile
+ * loops before / after the switch to transferTo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChannelEngineBenchmark {
+
+    @Param({"64"})
+    public int sizeMb;
+
+    private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+    private File plainFile;
+    private File encryptedFile;
+    private File outputFile;
+    private ParallelSegmentEncryptor encryptor;
+    private ParallelSegmentDecryptor decryptor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] plain = new byte[sizeMb * 1024 * 1024];
+        new Random(1).nextBytes(plain);
+        plainFile = File.createTempFile("bench", ".plain");
+        encryptedFile = File.createTempFile("bench", ".v1");
+        outputFile = File.createTempFile("bench", ".out");
+        Files.write(plainFile.toPath(), plain);
+
+        encryptor = new ParallelSegmentEncryptor(1);
+        decryptor = new ParallelSegmentDecryptor(1);
+        try (RandomAccessFile src = new RandomAccessFile(plainFile, "r");
+             RandomAccessFile dst = new RandomAccessFile(encryptedFile, "rw")) {
+            encryptor.encrypt(key, src.getChannel(), dst.getChannel());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encryptor.shutdown();
+        decryptor.shutdown();
+        plainFile.delete();
+        encryptedFile.delete();
+        outputFile.delete();
+    }
+
+    @Benchmark
+    public long streamEncrypt() throws Exception {
+        try (FileInputStream in = new FileInputStream(plainFile);
+             FileOutputStream out = new FileOutputStream(outputFile)) {
+            SegmentedCrypto.encrypt(key, in, out);
+        }
+        return outputFile.length();
+    }
+
+    @Benchmark
+    public long streamDecrypt() throws Exception {
+        try (FileInputStream in = new FileInputStream(encryptedFile);
+             FileOutputStream out = new FileOutputStream(outputFile)) {
+            byte[] head = new byte[SegmentedCrypto.HEADER_SIZE];
+            SegmentedCrypto.readFully(in, head, 0, head.length);
+            SegmentedCrypto.decrypt(key, SegmentedCrypto.Header.parse(head), in, out);
+        }
+        return outputFile.length();
+    }
+
+    @Benchmark
+    public long channelEncrypt() throws Exception {
+        try (RandomAccessFile src = new RandomAccessFile(plainFile, "r");
+             RandomAccessFile dst = new RandomAccessFile(outputFile, "rw")) {
+            encryptor.encrypt(key, src.getChannel(), dst.getChannel());
+            return dst.length();
+        }
+    }
+
+    @Benchmark
+    public boolean channelDecrypt() throws Exception {
+        try (RandomAccessFile src = new RandomAccessFile(encryptedFile, "r");
+             RandomAccessFile dst = new RandomAccessFile(outputFile, "rw")) {
+            return decryptor.decrypt(key, src.getChannel(), dst.getChannel());
+        }
+    }
+
+    @Benchmark
+    public long streamCopy() throws Exception {
+        try (FileInputStream in = new FileInputStream(plainFile);
+             FileOutputStream out = new FileOutputStream(outputFile)) {
+            byte[] buf = new byte[BufferPool.COPY];
+            int len;
+            while ((len = in.read(buf, 0, buf.length)) > 0) out.write(buf, 0, len);
+        }
+        return outputFile.length();
+    }
+
+    @Benchmark
+    public long channelCopy() throws Exception {
+        try (FileChannel in = new FileInputStream(plainFile).getChannel();
+             FileChannel out = new FileOutputStream(outputFile).getChannel()) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) position += in.transferTo(position, size - position, out);
+            return position;
+        }
+    }
+}
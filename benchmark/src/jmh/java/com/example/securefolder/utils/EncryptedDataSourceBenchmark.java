@@ -0,0 +1,98 @@
+package com.example.securefolder.utils;
+
+import android.net.Uri;
+import androidx.media3.datasource.DataSpec;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Video playback path: open at a random position and read the first 64 KiB
+ * (what a seek costs the player), and a sequential 4 MiB read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptedDataSourceBenchmark {
+
+    private static final int SEEK_READ = 64 * 1024;
+    private static final int SEQUENTIAL_READ = 4 * 1024 * 1024;
+
+    @Param({"64"})
+    public int fileSizeMb;
+
+    private SecretKey key;
+    private File file;
+    private long length;
+    private Uri uri;
+    private byte[] buffer;
+    private Random random;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        key = new SecretKeySpec(new byte[32], "AES");
+        length = fileSizeMb * 1024L * 1024L;
+        file = File.createTempFile("bench", ".v1");
+        uri = Uri.parse(file.toURI().toString());
+        buffer = new byte[SEEK_READ];
+        random = new Random(1);
+
+        byte[] chunk = new byte[BufferPool.COPY];
+        new Random(2).nextBytes(chunk);
+        try (SegmentedOutputStream out = new SegmentedOutputStream(new FileOutputStream(file), key)) {
+            for (long written = 0; written < length; written += chunk.length) out.write(chunk, 0, chunk.length);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public int seekAndRead() throws Exception {
+        long position = (long) (random.nextDouble() * (length - SEEK_READ));
+        return readFrom(position, SEEK_READ);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int sequentialRead() throws Exception {
+        return readFrom(0, SEQUENTIAL_READ);
+    }
+
+    private int readFrom(long position, int total) throws Exception {
+        EncryptedDataSource source = new EncryptedDataSource(file, key, null);
+        try {
+            source.open(new DataSpec(uri, position));
+            int read = 0;
+            while (read < total) {
+                int n = source.read(buffer, 0, Math.min(buffer.length, total - read));
+                if (n < 0) break;
+                read += n;
+            }
+            return read;
+        } finally {
+            source.close();
+        }
+    }
+}
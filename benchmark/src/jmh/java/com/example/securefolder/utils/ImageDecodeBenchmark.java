@@ -0,0 +1,101 @@
+package com.example.securefolder.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Heap cost of opening one photo in the viewer: the old decrypt-to-byte[] path with a
+ * full-resolution decode vs. the streaming SampledBitmapDecoder path.
+ *
+ * BitmapFactory doesn't run on the JVM, so each path does what the decoder does to the
+ * heap: pull the plaintext (a byte[] copy, or VaultFileInputStream in 16 KiB reads) and
+ * allocate the ARGB_8888 pixels it decodes into. Run with -PjmhProfilers=gc:
+ * gc.alloc.rate.norm is the peak heap per decoded image.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class ImageDecodeBenchmark {
+
+    private static final int DECODER_READ = 16 * 1024; // BitmapFactory's stream buffer
+
+    // 50 MP sensor, shown on a 1080 x 2340 phone screen
+    private static final int IMAGE_WIDTH = 8160;
+    private static final int IMAGE_HEIGHT = 6120;
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 2340;
+
+    @Param({"16"}) // Roughly a 50 MP JPEG
+    public int fileSizeMb;
+
+    private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+    private final byte[] buffer = new byte[DECODER_READ];
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] chunk = new byte[BufferPool.COPY];
+        new Random(1).nextBytes(chunk);
+        file = File.createTempFile("bench", ".v1");
+        try (SegmentedOutputStream out = new SegmentedOutputStream(new FileOutputStream(file), key)) {
+            for (long written = 0; written < fileSizeMb * 1024L * 1024L; written += chunk.length) {
+                out.write(chunk, 0, chunk.length);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    /** What PhotoViewerActivity did before: decrypt to a byte[], then decodeByteArray. */
+    @Benchmark
+    public byte[] byteArray() throws Exception {
+        byte[] whole;
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] head = new byte[SegmentedCrypto.HEADER_SIZE];
+            SegmentedCrypto.readFully(in, head, 0, head.length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            SegmentedCrypto.decrypt(key, SegmentedCrypto.Header.parse(head), in, out);
+            whole = out.toByteArray();
+        }
+        byte[] pixels = new byte[IMAGE_WIDTH * IMAGE_HEIGHT * 4];
+        pixels[0] = whole[0]; // Both live at once, as inside decodeByteArray
+        return pixels;
+    }
+
+    /** SampledBitmapDecoder: decodeStream over VaultFileInputStream with inSampleSize. */
+    @Benchmark
+    public byte[] streaming() throws Exception {
+        try (VaultFileInputStream in = VaultFileInputStream.open(file, key)) {
+            while (in.read(buffer, 0, buffer.length) != -1) {
+                // The decoder consumes each read before the next
+            }
+        }
+        int sample = SampledBitmapDecoder.sampleSize(IMAGE_WIDTH, IMAGE_HEIGHT, SCREEN_WIDTH, SCREEN_HEIGHT);
+        return new byte[(IMAGE_WIDTH / sample) * (IMAGE_HEIGHT / sample) * 4];
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.securefolder.utils;
+
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Unlock-path cost: PBKDF2 wrapper key at several iteration counts (15000 is the
+ * app's current setting) and the SHA-256 password hash.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyDerivationBenchmark {
+
+    @Param({"1000", "15000", "100000", "310000"})
+    public int iterations;
+
+    private final byte[] salt = new byte[16];
+
+    @Benchmark
+    public SecretKey deriveWrapperKey() throws Exception {
+        return KeyManager.deriveWrapperKey("correct horse battery staple", salt, iterations);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String hashPassword() {
+        return SecurityUtils.hashPassword("correct horse battery staple");
+    }
+}
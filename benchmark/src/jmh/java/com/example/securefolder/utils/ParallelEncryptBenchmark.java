@@ -0,0 +1,68 @@
+package com.example.securefolder.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Import encryption (stream in, FileChannel out) by ParallelSegmentEncryptor worker count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelEncryptBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    @Param({"64"})
+    public int sizeMb;
+
+    private final SecretKey key = new SecretKeySpec(new byte[32], "AES");
+    private byte[] plain;
+    private File file;
+    private ParallelSegmentEncryptor encryptor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        plain = new byte[sizeMb * 1024 * 1024];
+        new Random(1).nextBytes(plain);
+        file = File.createTempFile("bench", ".v1");
+        encryptor = new ParallelSegmentEncryptor(workers);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        encryptor.shutdown();
+        file.delete();
+    }
+
+    @Benchmark
+    public long encrypt() throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            encryptor.encrypt(key, new ByteArrayInputStream(plain), raf.getChannel());
+            return raf.length();
+        }
+    }
+}
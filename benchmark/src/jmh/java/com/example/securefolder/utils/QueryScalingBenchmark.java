@@ -0,0 +1,134 @@
+package com.example.securefolder.utils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Listing query time vs. row count, on the version 1 schema (no indexes) and after
+ * DatabaseSchema's migrations, using the app's own SQL on sqlite-jdbc: the first page,
+ * a page 90% deep (keyset), and the first page of the Trash.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryScalingBenchmark {
+
+    private static final int PAGE = 120;
+    private static final String[] TYPES = {"PHOTO", "VIDEO", "DOCUMENT"};
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean migrated;
+
+    private Connection db;
+    private String[] firstArgs;
+    private String[] deepArgs;
+    private String[] trashArgs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        db = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement st = db.createStatement()) {
+            st.execute(DatabaseSchema.CREATE_FILES_V1);
+        }
+        // Mixed types, 5% trashed, clashing timestamps
+        db.setAutoCommit(false);
+        Random random = new Random(rows);
+        try (PreparedStatement insert = db.prepareStatement("INSERT INTO files (type, system_name, display_name,"
+                + " original_path, mime_type, timestamp, is_deleted) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setString(1, TYPES[i % TYPES.length]);
+                insert.setString(2, UUID.randomUUID().toString());
+                insert.setString(3, "IMG_" + i + ".jpg");
+                insert.setString(4, "/storage/emulated/0/DCIM/Camera");
+                insert.setString(5, "image/jpeg");
+                insert.setLong(6, 1_600_000_000_000L + random.nextInt(rows) * 1000L);
+                insert.setInt(7, i % 20 == 0 ? 1 : 0);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        db.commit();
+        db.setAutoCommit(true);
+
+        if (migrated) {
+            try (Statement st = db.createStatement()) {
+                for (int version = 1; version < DatabaseSchema.VERSION; version++) {
+                    for (String statement : DatabaseSchema.migration(version)) st.execute(statement);
+                }
+            }
+        }
+
+        // (timestamp, id) of the active photo 90% down the listing
+        long deepTimestamp = 0, deepId = 0;
+        String active = " FROM files WHERE type='PHOTO' AND is_deleted=0";
+        try (Statement query = db.createStatement()) {
+            try (ResultSet rs = query.executeQuery("SELECT timestamp, id" + active + " ORDER BY timestamp DESC, id DESC"
+                    + " LIMIT 1 OFFSET (SELECT COUNT(*) * 9 / 10" + active + ")")) {
+                if (rs.next()) {
+                    deepTimestamp = rs.getLong(1);
+                    deepId = rs.getLong(2);
+                }
+            }
+        }
+        firstArgs = new String[]{"PHOTO", "0", String.valueOf(PAGE)};
+        deepArgs = new String[]{"PHOTO", "0", String.valueOf(deepTimestamp), String.valueOf(deepId), String.valueOf(PAGE)};
+        trashArgs = new String[]{"1", String.valueOf(PAGE)};
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        db.close();
+    }
+
+    @Benchmark
+    public int firstPage() throws Exception {
+        return query(DatabaseSchema.FIRST_PAGE, firstArgs);
+    }
+
+    @Benchmark
+    public int deepPage() throws Exception {
+        return query(DatabaseSchema.NEXT_PAGE, deepArgs);
+    }
+
+    @Benchmark
+    public int trash() throws Exception {
+        return query(DatabaseSchema.ANY_TYPE_FIRST_PAGE, trashArgs);
+    }
+
+    /** Args bound as strings, like SQLiteDatabase.rawQuery. */
+    private int query(String sql, String[] args) throws Exception {
+        try (PreparedStatement query = db.prepareStatement(sql)) {
+            for (int i = 0; i < args.length; i++) query.setString(i + 1, args[i]);
+            int count = 0;
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) count++;
+            }
+            return count;
+        }
+    }
+}
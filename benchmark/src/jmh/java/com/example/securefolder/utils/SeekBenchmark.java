@@ -0,0 +1,120 @@
+package com.example.securefolder.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Seek latency vs. offset: SeekableVaultFile on a segmented and a legacy file, and the
+ * old decrypt-and-discard skip the legacy stream path used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SeekBenchmark {
+
+    private static final int READ_SIZE = 4096;
+
+    @Param({"64"})
+    public int fileSizeMb;
+
+    // Fraction of the file to seek to
+    @Param({"0.0", "0.5", "0.99"})
+    public double offsetFraction;
+
+    private SecretKey key;
+    private File segmentedFile;
+    private File legacyFile;
+    private long offset;
+    private final byte[] buffer = new byte[READ_SIZE];
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        key = new SecretKeySpec(new byte[32], "AES");
+        long length = fileSizeMb * 1024L * 1024L;
+        offset = (long) ((length - READ_SIZE) * offsetFraction);
+
+        byte[] chunk = new byte[BufferPool.COPY];
+        new Random(1).nextBytes(chunk);
+        segmentedFile = File.createTempFile("bench", ".v1");
+        try (SegmentedOutputStream out = new SegmentedOutputStream(new FileOutputStream(segmentedFile), key)) {
+            for (long written = 0; written < length; written += chunk.length) out.write(chunk, 0, chunk.length);
+        }
+
+        // Legacy layout: IV (12) | single GCM stream | tag (16)
+        legacyFile = File.createTempFile("bench", ".legacy");
+        try (OutputStream out = new FileOutputStream(legacyFile)) {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key);
+            out.write(cipher.getIV());
+            for (long written = 0; written < length; written += chunk.length) out.write(cipher.update(chunk));
+            out.write(cipher.doFinal());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        segmentedFile.delete();
+        legacyFile.delete();
+    }
+
+    @Benchmark
+    public int segmentedSeek() throws Exception {
+        try (SeekableVaultFile vault = SeekableVaultFile.open(segmentedFile, key)) {
+            return vault.read(offset, buffer, 0, buffer.length);
+        }
+    }
+
+    @Benchmark
+    public int legacySeek() throws Exception {
+        try (SeekableVaultFile vault = SeekableVaultFile.open(legacyFile, key)) {
+            return vault.read(offset, buffer, 0, buffer.length);
+        }
+    }
+
+    /** The pre-seekable path: decrypt and throw away everything before the offset. */
+    @Benchmark
+    public long legacyStreamSkip() throws Exception {
+        try (FileInputStream fis = new FileInputStream(legacyFile)) {
+            byte[] iv = new byte[12];
+            SegmentedCrypto.readFully(fis, iv, 0, iv.length);
+            Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+            byte[] counter = new byte[16];
+            System.arraycopy(iv, 0, counter, 0, 12);
+            counter[15] = 2;
+            cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(counter));
+
+            byte[] skip = new byte[8192];
+            long remaining = offset;
+            while (remaining > 0) {
+                int read = fis.read(skip, 0, (int) Math.min(skip.length, remaining));
+                cipher.update(skip, 0, read);
+                remaining -= read;
+            }
+            return remaining;
+        }
+    }
+}
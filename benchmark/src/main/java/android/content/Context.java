@@ -0,0 +1,7 @@
+package android.content;
+
+/**
+ * JVM stand-in. Only passed through to AppPreferences, never used.
+ */
+public class Context {
+}
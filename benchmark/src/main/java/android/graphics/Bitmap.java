@@ -0,0 +1,7 @@
+package android.graphics;
+
+/**
+ * JVM stand-in. SampledBitmapDecoder only returns it; nothing decodes on the JVM.
+ */
+public class Bitmap {
+}
@@ -0,0 +1,20 @@
+package android.graphics;
+
+import java.io.InputStream;
+
+/**
+ * JVM stand-in so SampledBitmapDecoder compiles. Benchmarks only call its sampleSize().
+ */
+public class BitmapFactory {
+
+    public static class Options {
+        public boolean inJustDecodeBounds;
+        public int inSampleSize;
+        public int outWidth;
+        public int outHeight;
+    }
+
+    public static Bitmap decodeStream(InputStream is, Rect outPadding, Options opts) {
+        throw new UnsupportedOperationException("No bitmap decoding on the JVM");
+    }
+}
@@ -0,0 +1,7 @@
+package android.graphics;
+
+/**
+ * JVM stand-in. Only appears in the BitmapFactory.decodeStream signature.
+ */
+public class Rect {
+}
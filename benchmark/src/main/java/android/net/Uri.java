@@ -0,0 +1,22 @@
+package android.net;
+
+/**
+ * JVM stand-in. EncryptedDataSource only stores and returns it.
+ */
+public class Uri {
+
+    private final String value;
+
+    private Uri(String value) {
+        this.value = value;
+    }
+
+    public static Uri parse(String value) {
+        return new Uri(value);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
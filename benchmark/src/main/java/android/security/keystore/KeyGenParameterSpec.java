@@ -0,0 +1,22 @@
+package android.security.keystore;
+
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * JVM stand-in. There is no AndroidKeyStore on the JVM, so the keystore-backed
+ * CryptoManager instance methods are not benchmarked; this only has to compile.
+ */
+public class KeyGenParameterSpec implements AlgorithmParameterSpec {
+
+    public static class Builder {
+        public Builder(String alias, int purposes) {}
+
+        public Builder setBlockModes(String... modes) { return this; }
+
+        public Builder setEncryptionPaddings(String... paddings) { return this; }
+
+        public Builder setRandomizedEncryptionRequired(boolean required) { return this; }
+
+        public KeyGenParameterSpec build() { return new KeyGenParameterSpec(); }
+    }
+}
@@ -0,0 +1,12 @@
+package android.security.keystore;
+
+/**
+ * JVM stand-in with the constants CryptoManager references.
+ */
+public class KeyProperties {
+    public static final String KEY_ALGORITHM_AES = "AES";
+    public static final String BLOCK_MODE_GCM = "GCM";
+    public static final String ENCRYPTION_PADDING_NONE = "NoPadding";
+    public static final int PURPOSE_ENCRYPT = 1;
+    public static final int PURPOSE_DECRYPT = 2;
+}
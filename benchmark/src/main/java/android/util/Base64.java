@@ -0,0 +1,18 @@
+package android.util;
+
+/**
+ * JVM stand-in backed by java.util.Base64. Only the flags the app uses.
+ */
+public class Base64 {
+
+    public static final int DEFAULT = 0;
+    public static final int NO_WRAP = 2;
+
+    public static String encodeToString(byte[] input, int flags) {
+        return java.util.Base64.getEncoder().encodeToString(input);
+    }
+
+    public static byte[] decode(String str, int flags) {
+        return java.util.Base64.getDecoder().decode(str);
+    }
+}
@@ -0,0 +1,9 @@
+package androidx.media3.common;
+
+/** JVM stand-in with the media3 constants EncryptedDataSource uses. */
+public final class C {
+    public static final int RESULT_END_OF_INPUT = -1;
+    public static final long LENGTH_UNSET = -1;
+
+    private C() {}
+}
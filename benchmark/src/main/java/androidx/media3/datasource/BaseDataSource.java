@@ -0,0 +1,31 @@
+package androidx.media3.datasource;
+
+import android.net.Uri;
+import java.io.IOException;
+
+/**
+ * JVM stand-in for media3's BaseDataSource. The transfer callbacks are no-ops,
+ * so the benchmark measures EncryptedDataSource itself.
+ */
+public abstract class BaseDataSource {
+
+    protected BaseDataSource(boolean isNetwork) {}
+
+    public final void addTransferListener(TransferListener listener) {}
+
+    protected final void transferInitializing(DataSpec dataSpec) {}
+
+    protected final void transferStarted(DataSpec dataSpec) {}
+
+    protected final void bytesTransferred(int bytesTransferred) {}
+
+    protected final void transferEnded() {}
+
+    public abstract long open(DataSpec dataSpec) throws IOException;
+
+    public abstract int read(byte[] buffer, int offset, int length) throws IOException;
+
+    public abstract Uri getUri();
+
+    public abstract void close() throws IOException;
+}
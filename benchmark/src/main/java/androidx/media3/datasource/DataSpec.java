@@ -0,0 +1,22 @@
+package androidx.media3.datasource;
+
+import android.net.Uri;
+import androidx.media3.common.C;
+
+/** JVM stand-in with the fields EncryptedDataSource reads. */
+public class DataSpec {
+
+    public final Uri uri;
+    public final long position;
+    public final long length;
+
+    public DataSpec(Uri uri, long position, long length) {
+        this.uri = uri;
+        this.position = position;
+        this.length = length;
+    }
+
+    public DataSpec(Uri uri, long position) {
+        this(uri, position, C.LENGTH_UNSET);
+    }
+}
@@ -0,0 +1,5 @@
+package androidx.media3.datasource;
+
+/** JVM stand-in. The benchmarks don't listen to transfers. */
+public interface TransferListener {
+}
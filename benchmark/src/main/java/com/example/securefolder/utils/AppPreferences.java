@@ -0,0 +1,39 @@
+package com.example.securefolder.utils;
+
+import android.content.Context;
+
+/**
+ * JVM stand-in for the SharedPreferences-backed AppPreferences.
+ * Keeps the vault blobs KeyManager writes in memory for the process.
+ */
+public class AppPreferences {
+
+    private static String salt, masterKeyBlob, masterKeyIV;
+    private static String recoverySalt, recoveryBlob, recoveryIV;
+
+    public AppPreferences(Context context) {}
+
+    public void saveVaultData(String salt, String blob, String iv) {
+        AppPreferences.salt = salt;
+        masterKeyBlob = blob;
+        masterKeyIV = iv;
+    }
+
+    public void saveRecoveryData(String salt, String blob, String iv) {
+        recoverySalt = salt;
+        recoveryBlob = blob;
+        recoveryIV = iv;
+    }
+
+    public String getSalt() { return salt; }
+
+    public String getMasterKeyBlob() { return masterKeyBlob; }
+
+    public String getMasterKeyIV() { return masterKeyIV; }
+
+    public String getRecoverySalt() { return recoverySalt; }
+
+    public String getRecoveryBlob() { return recoveryBlob; }
+
+    public String getRecoveryIV() { return recoveryIV; }
+}